@@ -0,0 +1,267 @@
+package gov.usgs.earthquake;
+
+import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import gov.usgs.earthquake.mfd.GaussianMfd;
+import gov.usgs.earthquake.mfd.GutenbergRichterMfd;
+import gov.usgs.earthquake.mfd.MfdKernels;
+import gov.usgs.earthquake.mfd.YC_1985_CharMfd;
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
+import gov.usgs.earthquake.nshmp.eq.Earthquakes;
+import gov.usgs.earthquake.nshmp.internal.Parsing;
+import gov.usgs.earthquake.peer.GmmTableBenchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.primitives.Doubles;
+
+/**
+ * Micro-benchmarks and equality checks for the optimized parsing, MFD, and
+ * ground motion table code paths. Not part of the shipped classes. Each
+ * benchmark times a few passes so that later passes reflect compiled code,
+ * and accumulates results into a printed sink so that work is not
+ * eliminated.
+ *
+ * <pre>
+ * Benchmarks kernels [count]
+ * Benchmarks gaussian [count]
+ * Benchmarks tokenizer &lt;file&gt;...
+ * Benchmarks gmm-table &lt;table.bin&gt; [samples]
+ * </pre>
+ *
+ * @author Peter Powers
+ */
+public final class Benchmarks {
+
+  private static final String USAGE = "Usage: Benchmarks " +
+      "kernels [count] | gaussian [count] | tokenizer <file>... | " +
+      "gmm-table <table.bin> [samples]";
+
+  private Benchmarks() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println(USAGE);
+      System.exit(1);
+    }
+    String[] rest = Arrays.copyOfRange(args, 1, args.length);
+    switch (args[0]) {
+      case "kernels":
+        kernels(count(rest, 0, 200_000));
+        break;
+      case "gaussian":
+        gaussian(count(rest, 0, 100_000));
+        break;
+      case "tokenizer":
+        tokenizer(rest);
+        break;
+      case "gmm-table":
+        if (rest.length == 0) throw new IllegalArgumentException(USAGE);
+        GmmTableBenchmark.run(Paths.get(rest[0]), count(rest, 1, 10_000_000));
+        break;
+      default:
+        throw new IllegalArgumentException(USAGE);
+    }
+  }
+
+  private static int count(String[] args, int index, int defaultCount) {
+    return (args.length > index) ? Integer.parseInt(args[index]) : defaultCount;
+  }
+
+  /*
+   * Builds moment-balanced GR, Gaussian, and YC MFDs on a shared axis using
+   * MfdKernels and the equivalent IncrementalMfd subclasses.
+   */
+  static void kernels(int count) {
+    double min = 5.05;
+    double delta = 0.1;
+    int num = 40;
+    MfdKernels.Axis axis = MfdKernels.axis(min, delta, num);
+    double[] rates = new double[num];
+    double max = axis.mag(num - 1);
+
+    for (int pass = 0; pass < 3; pass++) {
+      double sink = 0.0;
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        MfdKernels.gutenbergRichter(axis, 0, num - 1, 0.8, rates);
+        MfdKernels.scaleToMomentRate(rates, axis, 1e17);
+        sink += rates[0];
+        MfdKernels.gaussian(axis, 7.0, 0.12, 2.0, 2, rates);
+        MfdKernels.scaleToMomentRate(rates, axis, 1e17);
+        sink += rates[20];
+        MfdKernels.youngsCoppersmith(axis, 0, 15, 16, num - 1, 0.8, axis.mag(15), rates);
+        MfdKernels.scaleToMomentRate(rates, axis, 1e17);
+        sink += rates[0];
+      }
+      long kernelTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        GutenbergRichterMfd gr = new GutenbergRichterMfd(min, num, delta);
+        gr.setAllButTotCumRate(min, max, 1e17, 0.8);
+        sink += gr.getY(0);
+        GaussianMfd gauss = new GaussianMfd(min, max, num, false);
+        gauss.setAllButCumRate(7.0, 0.12, 1e17, 2.0, 2);
+        sink += gauss.getY(20);
+        YC_1985_CharMfd yc = new YC_1985_CharMfd(min, num, delta, min, max,
+            max - axis.mag(16), axis.mag(15), 0.0, 0.8, 1e17);
+        sink += yc.getY(0);
+      }
+      long mfdTime = System.nanoTime() - start;
+
+      System.out.println(String.format(
+          "Pass %s: kernels %.1f ns/set, mfds %.1f ns/set [%s]",
+          pass, kernelTime / (double) count, mfdTime / (double) count, sink));
+    }
+  }
+
+  /*
+   * Compares moment-balanced, two-sided truncated GaussianMfds, whose shapes
+   * are cached, against rates computed point by point over a small set of
+   * repeated configurations, and times both.
+   */
+  static void gaussian(int count) {
+    double[] means = { 6.5, 6.7, 6.9, 7.1, 7.3 };
+
+    double maxDiff = 0.0;
+    for (double mean : means) {
+      GaussianMfd mfd = new GaussianMfd(5.05, 8.05, 31, false);
+      mfd.setAllButCumRate(mean, 0.12, 1e17, 2.0, 2);
+      double[] expected = gaussianReference(mfd, mean, 0.12, 1e17, 2.0, 2);
+      for (int j = 0; j < mfd.getNum(); j++) {
+        double diff = Math.abs(mfd.getY(j) - expected[j]);
+        maxDiff = Math.max(maxDiff, diff / Math.max(expected[j], Double.MIN_NORMAL));
+      }
+    }
+    System.out.println("Max rel. diff from reference: " + maxDiff);
+    if (maxDiff > 1e-12) {
+      throw new IllegalStateException("Rates differ from reference by " + maxDiff);
+    }
+
+    for (int pass = 0; pass < 3; pass++) {
+      double sink = 0.0;
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        GaussianMfd mfd = new GaussianMfd(5.05, 8.05, 31, false);
+        mfd.setAllButCumRate(means[i % means.length], 0.12, 1e17, 2.0, 2);
+        sink += mfd.getY(15);
+      }
+      long cachedTime = System.nanoTime() - start;
+
+      GaussianMfd axis = new GaussianMfd(5.05, 8.05, 31, false);
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        sink += gaussianReference(axis, means[i % means.length], 0.12, 1e17, 2.0, 2)[15];
+      }
+      long referenceTime = System.nanoTime() - start;
+
+      System.out.println(String.format(
+          "Pass %s: cached %.1f ns/mfd, reference %.1f ns/mfd [%s]",
+          pass, cachedTime / (double) count, referenceTime / (double) count, sink));
+    }
+  }
+
+  /*
+   * Moment-balanced Gaussian rates on the magnitude axis of the supplied MFD,
+   * computed point by point as GaussianMfd did before it used MfdKernels.
+   */
+  private static double[] gaussianReference(GaussianMfd axis, double mean, double stdDev,
+      double totMoRate, double truncLevel, int truncType) {
+    int num = axis.getNum();
+    double min = axis.getMinX();
+    double delta = axis.getDelta();
+    double[] rates = new double[num];
+    for (int i = 0; i < num; ++i) {
+      double mag = axis.getX(i);
+      rates[i] = Math.exp(-Math.pow((mag - mean), 2) / (2 * stdDev * stdDev));
+    }
+    if (truncType != 0) {
+      double magUpper = mean + truncLevel * stdDev;
+      int index = Math.round((float) ((magUpper - min) / delta));
+      for (int i = index + 1; i >= 0 && i < num; i++) {
+        rates[i] = 0.0;
+      }
+    }
+    if (truncType == 2) {
+      double magLower = mean - truncLevel * stdDev;
+      int index = Math.round((float) ((magLower - min) / delta));
+      for (int i = 0; i < index && i < num; i++) {
+        rates[i] = 0.0;
+      }
+    }
+    double moRate = 0.0;
+    for (int i = 0; i < num; i++) {
+      moRate += rates[i] * Earthquakes.magToMoment(axis.getX(i));
+    }
+    double scale = totMoRate / moRate;
+    for (int i = 0; i < num; i++) {
+      rates[i] *= scale;
+    }
+    return rates;
+  }
+
+  /*
+   * Parses the numeric lines of the supplied files; compares
+   * Parsing.splitToDoubleList() with LineTokenizer and verifies that both
+   * yield identical values.
+   */
+  static void tokenizer(String[] files) throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (String file : files) {
+      for (String line : Files.readAllLines(Paths.get(file), UTF_8)) {
+        if (isNumeric(line)) lines.add(line);
+      }
+    }
+    System.out.println("Numeric lines: " + lines.size());
+
+    LineTokenizer tokenizer = LineTokenizer.of("");
+    for (String line : lines) {
+      double[] expected = Doubles.toArray(Parsing.splitToDoubleList(line, SPACE));
+      double[] actual = tokenizer.reset(line).toDoubleArray();
+      if (!Arrays.equals(expected, actual)) {
+        throw new IllegalStateException("Parse mismatch: " + line);
+      }
+    }
+
+    for (int pass = 0; pass < 5; pass++) {
+      double sink = 0.0;
+      long start = System.nanoTime();
+      for (String line : lines) {
+        for (double value : Parsing.splitToDoubleList(line, SPACE)) {
+          sink += value;
+        }
+      }
+      long splitTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (String line : lines) {
+        tokenizer.reset(line);
+        while (tokenizer.hasNext()) {
+          sink += tokenizer.nextDouble();
+        }
+      }
+      long tokenTime = System.nanoTime() - start;
+
+      System.out.println(String.format(
+          "Pass %s: split %.1f ns/line, tokenizer %.1f ns/line [%s]",
+          pass, splitTime / (double) lines.size(), tokenTime / (double) lines.size(), sink));
+    }
+  }
+
+  private static boolean isNumeric(String line) {
+    LineTokenizer tokenizer = LineTokenizer.of(line);
+    if (!tokenizer.hasNext()) return false;
+    while (tokenizer.hasNext()) {
+      if (Doubles.tryParse(tokenizer.next()) == null) return false;
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,54 @@
+package gov.usgs.earthquake.peer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Interpolation benchmark for binary ground motion tables; run through
+ * {@code Benchmarks gmm-table}. Lives in the table's package because
+ * {@code GmmTable} is package-private.
+ *
+ * @author Peter Powers
+ */
+public final class GmmTableBenchmark {
+
+  private GmmTableBenchmark() {}
+
+  /*
+   * Samples a binary table at random distances and magnitudes for all Imts.
+   * The Imt index is resolved once per Imt, outside the sampling loop.
+   */
+  public static void run(Path tablePath, int samples) throws IOException {
+    GmmTable table = GmmTable.readBinary(tablePath);
+    double rMax = table.r[table.r.length - 1];
+    double mMin = table.m[0];
+    double mRange = table.m[table.m.length - 1] - mMin;
+
+    int[] imtIndices = new int[table.imts.size()];
+    for (int i = 0; i < imtIndices.length; i++) {
+      imtIndices[i] = table.imtIndex(table.imts.get(i));
+    }
+
+    // pre-generate arguments so only interpolation is timed
+    Random random = new Random(0);
+    double[] rVals = new double[samples];
+    double[] mVals = new double[samples];
+    for (int i = 0; i < samples; i++) {
+      rVals[i] = random.nextDouble() * rMax;
+      mVals[i] = mMin + random.nextDouble() * mRange;
+    }
+
+    double sink = 0.0;
+    for (int pass = 0; pass < 3; pass++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < samples; i++) {
+        sink += table.interpolate(imtIndices[i % imtIndices.length], rVals[i], mVals[i]);
+      }
+      double ns = (System.nanoTime() - start) / (double) samples;
+      System.out.println(String.format("Pass %s: %.1f ns/sample", pass, ns));
+    }
+    System.out.println("Checksum: " + sink);
+  }
+
+}
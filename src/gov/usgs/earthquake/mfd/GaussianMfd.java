@@ -3,6 +3,10 @@ package gov.usgs.earthquake.mfd;
 import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
 
 import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * This class represents a Gaussian magnitude-frequency distribution (MFD). It's
@@ -163,8 +167,10 @@ public class GaussianMfd extends IncrementalMfd {
     this.mean = mean;
     this.stdDev = stdDev;
     this.truncType = 0;
-    calculateRelativeRates();
-    scaleToTotalMomentRate(totMoRate);
+    MfdKernels.Axis axis = axis();
+    double[] rates = calculateRelativeRates(axis);
+    MfdKernels.scaleToMomentRate(rates, axis, totMoRate);
+    setRates(rates);
   }
 
   /**
@@ -181,8 +187,10 @@ public class GaussianMfd extends IncrementalMfd {
     this.stdDev = stdDev;
     this.truncLevel = truncLevel;
     this.truncType = truncType;
-    calculateRelativeRates();
-    scaleToTotalMomentRate(totMoRate);
+    MfdKernels.Axis axis = axis();
+    double[] rates = calculateRelativeRates(axis);
+    MfdKernels.scaleToMomentRate(rates, axis, totMoRate);
+    setRates(rates);
   }
 
   /**
@@ -195,7 +203,7 @@ public class GaussianMfd extends IncrementalMfd {
     this.mean = mean;
     this.stdDev = stdDev;
     this.truncType = 0;
-    calculateRelativeRates();
+    setRates(calculateRelativeRates(axis()));
     scaleToCumRate(0, totCumRate);
   }
 
@@ -213,7 +221,7 @@ public class GaussianMfd extends IncrementalMfd {
     this.stdDev = stdDev;
     this.truncLevel = truncLevel;
     this.truncType = truncType;
-    calculateRelativeRates();
+    setRates(calculateRelativeRates(axis()));
     scaleToCumRate(0, totCumRate);
   }
 
@@ -296,50 +304,94 @@ public class GaussianMfd extends IncrementalMfd {
   }
 
   /**
-   * This functions call the method set(int,double) in the EvenlyDiscretized
-   * class to set the y-axis values based on the x-axis data provided by the
-   * user,in form of the mag,mean stdDev. it then sets up the rate as the Y-axis
-   * values. Based on the truncType it sets the rate to be zero after setting
-   * the truncLevel(which specifies the # of stdDev from mean where dist. cut to
-   * zero
+   * Computes the relative rates for the x-axis magnitudes based on the mean and
+   * stdDev. Based on the truncType, rates are set to zero beyond the
+   * truncLevel (which specifies the # of stdDev from mean where dist. cut to
+   * zero).
    */
-  private void calculateRelativeRates() {
+  private double[] calculateRelativeRates(MfdKernels.Axis axis) {
     if (stdDev != 0) {
-      for (int i = 0; i < num; ++i) {
-        double mag = getX(i);
-        double rate = Math.exp(-Math.pow((mag - mean), 2) / (2 * stdDev * stdDev));
-        super.set(i, rate);
+      Shape shape = new Shape(minX, delta, num, mean, stdDev, truncLevel, truncType);
+      double[] rates = SHAPES.getIfPresent(shape);
+      if (rates == null) {
+        rates = new double[num];
+        MfdKernels.gaussian(axis, mean, stdDev, truncLevel, truncType, rates);
+        SHAPES.put(shape, rates);
       }
+      double[] buffer = MfdKernels.buffer(num);
+      System.arraycopy(rates, 0, buffer, 0, num);
+      return buffer;
+    }
+    for (int i = 0; i < num; ++i) {
+      super.set(i, 0);
+    }
+    try {
+      super.set(mean, 1.0);
+    } catch (RuntimeException e) {
+      throw new RuntimeException(
+          "If sigma=0, then mean must equal one of the discrete X-axis magnitudes");
+    }
+    double[] rates = MfdKernels.buffer(num);
+    for (int i = 0; i < num; i++) {
+      rates[i] = getY(i);
+    }
+    return rates;
+  }
 
-      if (truncType != 0) {
-        double magUpper = mean + truncLevel * stdDev;
-        int index = Math.round((float) ((magUpper - minX) / delta));
-        // Make this the last non-zero rate by adding one in the next
-        // loop
-        for (int i = index + 1; i >= 0 && i < num; i++) {
-          super.set(i, 0);
-        }
-      }
+  /*
+   * Relative rates depend only on the magnitude axis, mean, stdDev and
+   * truncation. Repeat configurations, common when expanding aleatory
+   * magnitude uncertainty, reuse previously computed rates. Cached arrays are
+   * never modified.
+   */
+  private static final Cache<Shape, double[]> SHAPES = CacheBuilder.newBuilder()
+      .maximumSize(1024)
+      .build();
+
+  private static final class Shape {
+
+    final double min, delta, mean, stdDev, truncLevel;
+    final int num, truncType;
+
+    Shape(double min, double delta, int num, double mean, double stdDev, double truncLevel,
+        int truncType) {
+      this.min = min;
+      this.delta = delta;
+      this.num = num;
+      this.mean = mean;
+      this.stdDev = stdDev;
+      // truncation level is ignored without truncation
+      this.truncLevel = (truncType == 0) ? Double.NaN : truncLevel;
+      this.truncType = truncType;
+    }
 
-      if (truncType == 2) {
-        double magLower = this.mean - this.truncLevel * this.stdDev;
-        int index = Math.round((float) ((magLower - this.minX) / this.delta));
-        // Make this the first non-zero rate by the <index in the next
-        // loop
-        for (int i = 0; i < index && i < num; i++) {
-          super.set(i, 0);
-        }
-      }
-    } else {
-      for (int i = 0; i < num; ++i) {
-        super.set(i, 0);
-      }
-      try {
-        super.set(mean, 1.0);
-      } catch (RuntimeException e) {
-        throw new RuntimeException(
-            "If sigma=0, then mean must equal one of the discrete X-axis magnitudes");
-      }
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Shape)) return false;
+      Shape that = (Shape) obj;
+      return num == that.num &&
+          truncType == that.truncType &&
+          Double.compare(min, that.min) == 0 &&
+          Double.compare(delta, that.delta) == 0 &&
+          Double.compare(mean, that.mean) == 0 &&
+          Double.compare(stdDev, that.stdDev) == 0 &&
+          Double.compare(truncLevel, that.truncLevel) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(new double[] { min, delta, num, mean, stdDev, truncLevel,
+          truncType });
+    }
+  }
+
+  private MfdKernels.Axis axis() {
+    return MfdKernels.axis(minX, delta, num);
+  }
+
+  private void setRates(double[] rates) {
+    for (int i = 0; i < num; i++) {
+      super.set(i, rates[i]);
     }
   }
 
@@ -114,8 +114,10 @@ public class GutenbergRichterMfd extends IncrementalMfd {
     this.magLower = magLower;
     this.magUpper = magUpper;
     this.bValue = bValue;
-    calculateRelativeRates();
-    scaleToTotalMomentRate(totMoRate);
+    MfdKernels.Axis axis = axis();
+    double[] rates = calculateRelativeRates(axis);
+    MfdKernels.scaleToMomentRate(rates, axis, totMoRate);
+    setRates(rates);
   }
 
   /**
@@ -132,7 +134,7 @@ public class GutenbergRichterMfd extends IncrementalMfd {
     this.magLower = magLower;
     this.magUpper = magUpper;
     this.bValue = bValue;
-    calculateRelativeRates();
+    setRates(calculateRelativeRates(axis()));
     scaleToCumRate(magLower, totCumRate);
   }
 
@@ -236,10 +238,10 @@ public class GutenbergRichterMfd extends IncrementalMfd {
   }
 
   /**
-   * private function to set the rate values
+   * private function to compute the relative rate values
    */
 
-  private void calculateRelativeRates() {
+  private double[] calculateRelativeRates(MfdKernels.Axis axis) {
 
     // checks that magUpper, magLower lie between minX and maxX
     // it also checks that magUpper > magLower
@@ -257,19 +259,18 @@ public class GutenbergRichterMfd extends IncrementalMfd {
       throw new RuntimeException("magUpper is not within tolerance of an x-axis value");
     }
 
-    int i;
-
-    for (i = 0; i < indexLow; ++i) {
-      super.set(i, 0.0);
-    }
+    double[] rates = MfdKernels.buffer(num);
+    MfdKernels.gutenbergRichter(axis, indexLow, indexUp, bValue, rates);
+    return rates;
+  }
 
-    for (i = indexLow; i <= indexUp; ++i) {
-      // between magLower and magUpper
-      super.set(i, Math.pow(10, -bValue * getX(i)));
-    }
+  private MfdKernels.Axis axis() {
+    return MfdKernels.axis(minX, delta, num);
+  }
 
-    for (i = indexUp + 1; i < num; ++i) {
-      super.set(i, 0.0);
+  private void setRates(double[] rates) {
+    for (int i = 0; i < num; i++) {
+      super.set(i, rates[i]);
     }
   }
 
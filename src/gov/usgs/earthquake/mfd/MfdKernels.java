@@ -0,0 +1,351 @@
+package gov.usgs.earthquake.mfd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import gov.usgs.earthquake.nshmp.eq.Earthquakes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Static, allocation-free magnitude-frequency distribution (MFD) kernels. All
+ * kernels operate on an evenly discretized magnitude {@link Axis} and fill
+ * caller-supplied rate arrays at least as long as the axis. Axes precompute
+ * their magnitudes, moments, and bin edge moments, and keep the
+ * <code>10<sup>-b·M</sup></code> terms of the most recently used b-value, so
+ * per-axis terms are computed once and reused across many MFDs. Bin indices
+ * are inclusive.
+ *
+ * <p>Relative-rate kernels produce unscaled rates; use
+ * {@link #scaleToMomentRate(double[], Axis, double)} or
+ * {@link #scaleToCumRate(double[], Axis, int, double)} to scale them.
+ *
+ * @author Peter Powers
+ */
+public final class MfdKernels {
+
+  private static final int AXIS_CACHE_SIZE = 16;
+  private static final AtomicReferenceArray<Axis> AXES =
+      new AtomicReferenceArray<>(AXIS_CACHE_SIZE);
+  private static final AtomicInteger NEXT_AXIS = new AtomicInteger();
+
+  private static final ThreadLocal<double[]> BUFFER = new ThreadLocal<double[]>() {
+    @Override
+    protected double[] initialValue() {
+      return new double[64];
+    }
+  };
+
+  private MfdKernels() {}
+
+  /**
+   * Return an evenly discretized magnitude axis. The most recently created
+   * axes are kept in a small, fixed-size cache, so repeat requests for the
+   * same axis do not allocate.
+   *
+   * @param min magnitude
+   * @param delta magnitude bin width
+   * @param num number of magnitudes
+   */
+  public static Axis axis(double min, double delta, int num) {
+    for (int i = 0; i < AXIS_CACHE_SIZE; i++) {
+      Axis axis = AXES.get(i);
+      if (axis != null && axis.matches(min, delta, num)) return axis;
+    }
+    Axis axis = new Axis(min, delta, num);
+    AXES.set(Math.floorMod(NEXT_AXIS.getAndIncrement(), AXIS_CACHE_SIZE), axis);
+    return axis;
+  }
+
+  /**
+   * Immutable, evenly discretized magnitude axis with precomputed magnitudes,
+   * moments, and bin edge moments. The <code>10<sup>-b·M</sup></code> terms of
+   * the most recently used b-value are also kept.
+   */
+  public static final class Axis {
+
+    private final double min;
+    private final double delta;
+    private final double[] mags;
+    private final double[] moments;
+    private final double[] lowerMoments;
+    private final double[] upperMoments;
+    private volatile Powers powers;
+
+    private Axis(double min, double delta, int num) {
+      checkArgument(num > 0, "Axis size [%s] must be positive", num);
+      this.min = min;
+      this.delta = delta;
+      mags = new double[num];
+      moments = new double[num];
+      lowerMoments = new double[num];
+      upperMoments = new double[num];
+      for (int i = 0; i < num; i++) {
+        mags[i] = min + i * delta;
+        moments[i] = Earthquakes.magToMoment(mags[i]);
+        lowerMoments[i] = Earthquakes.magToMoment(mags[i] - delta / 2.0);
+        upperMoments[i] = Earthquakes.magToMoment(mags[i] + delta / 2.0);
+      }
+    }
+
+    /** The number of magnitudes. */
+    public int size() {
+      return mags.length;
+    }
+
+    /** The lowest magnitude. */
+    public double min() {
+      return min;
+    }
+
+    /** The magnitude bin width. */
+    public double delta() {
+      return delta;
+    }
+
+    /**
+     * The magnitude of a bin.
+     * @param index of bin
+     */
+    public double mag(int index) {
+      return mags[index];
+    }
+
+    /**
+     * The scalar seismic moment of the magnitude of a bin.
+     * @param index of bin
+     */
+    public double moment(int index) {
+      return moments[index];
+    }
+
+    private boolean matches(double min, double delta, int num) {
+      return mags.length == num &&
+          Double.compare(this.min, min) == 0 &&
+          Double.compare(this.delta, delta) == 0;
+    }
+
+    private double[] powers(double b) {
+      Powers p = powers;
+      if (p == null || Double.compare(p.b, b) != 0) {
+        p = new Powers(b, mags);
+        powers = p;
+      }
+      return p.values;
+    }
+  }
+
+  /* 10^(-b·M) for each magnitude of an axis; never modified. */
+  private static final class Powers {
+
+    final double b;
+    final double[] values;
+
+    Powers(double b, double[] mags) {
+      this.b = b;
+      values = new double[mags.length];
+      for (int i = 0; i < mags.length; i++) {
+        values[i] = Math.pow(10, -b * mags[i]);
+      }
+    }
+  }
+
+  /*
+   * A per-thread scratch buffer of at least the supplied size for callers
+   * that copy kernel output elsewhere. Contents are unspecified.
+   */
+  static double[] buffer(int size) {
+    double[] buffer = BUFFER.get();
+    if (buffer.length < size) {
+      buffer = new double[Math.max(size, buffer.length * 2)];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  /**
+   * Fill {@code rates} with relative Gutenberg-Richter rates,
+   * <code>10<sup>-b·M</sup></code>, between bins {@code iMin} and {@code iMax}
+   * and zeros elsewhere.
+   *
+   * @param axis magnitude axis
+   * @param iMin index of lowest non-zero bin
+   * @param iMax index of highest non-zero bin
+   * @param b value
+   * @param rates to fill
+   */
+  public static void gutenbergRichter(Axis axis, int iMin, int iMax, double b,
+      double[] rates) {
+    checkBins(axis, iMin, iMax, rates);
+    double[] powers = axis.powers(b);
+    for (int i = 0; i < powers.length; i++) {
+      rates[i] = (i < iMin || i > iMax) ? 0.0 : powers[i];
+    }
+  }
+
+  /**
+   * Fill {@code rates} with relative tapered Gutenberg-Richter rates (Kagan,
+   * 2002) between bins {@code iMin} and {@code iMax} and zeros elsewhere. Each
+   * rate is the difference in the cumulative tapered distribution across the
+   * edges of a bin.
+   *
+   * @param axis magnitude axis
+   * @param iMin index of lowest non-zero bin
+   * @param iMax index of highest non-zero bin
+   * @param b value
+   * @param mCorner corner magnitude
+   * @param rates to fill
+   */
+  public static void taperedGutenbergRichter(Axis axis, int iMin, int iMax, double b,
+      double mCorner, double[] rates) {
+    checkBins(axis, iMin, iMax, rates);
+    double beta = 2.0 * b / 3.0;
+    double moThreshold = axis.lowerMoments[iMin];
+    double moCorner = Earthquakes.magToMoment(mCorner);
+    double cumLower = 1.0;
+    for (int i = 0; i < axis.size(); i++) {
+      if (i < iMin || i > iMax) {
+        rates[i] = 0.0;
+        continue;
+      }
+      double moUpper = axis.upperMoments[i];
+      double cumUpper = Math.pow(moThreshold / moUpper, beta) *
+          Math.exp((moThreshold - moUpper) / moCorner);
+      rates[i] = cumLower - cumUpper;
+      cumLower = cumUpper;
+    }
+  }
+
+  /**
+   * Fill {@code rates} with relative Gaussian rates,
+   * <code>exp(-(M-μ)<sup>2</sup>/2σ<sup>2</sup>)</code>, with optional
+   * truncation. Truncation levels are rounded to the nearest bin, which is
+   * given a non-zero rate.
+   *
+   * @param axis magnitude axis
+   * @param mean magnitude
+   * @param sigma standard deviation; must be greater than 0
+   * @param truncLevel in units of sigma from the mean
+   * @param truncType 0 for none; 1 for upper only; and 2 for upper and lower
+   * @param rates to fill
+   */
+  public static void gaussian(Axis axis, double mean, double sigma, double truncLevel,
+      int truncType, double[] rates) {
+    checkArgument(sigma > 0.0, "sigma [%s] must be greater than 0", sigma);
+    int num = axis.size();
+    checkRates(axis, rates);
+    double twoVar = 2 * sigma * sigma;
+    for (int i = 0; i < num; i++) {
+      double dm = axis.mags[i] - mean;
+      rates[i] = Math.exp(-(dm * dm) / twoVar);
+    }
+    if (truncType != 0) {
+      double magUpper = mean + truncLevel * sigma;
+      int index = Math.round((float) ((magUpper - axis.min) / axis.delta));
+      for (int i = index + 1; i >= 0 && i < num; i++) {
+        rates[i] = 0.0;
+      }
+    }
+    if (truncType == 2) {
+      double magLower = mean - truncLevel * sigma;
+      int index = Math.round((float) ((magLower - axis.min) / axis.delta));
+      for (int i = 0; i < index && i < num; i++) {
+        rates[i] = 0.0;
+      }
+    }
+  }
+
+  /**
+   * Fill {@code rates} with relative Youngs and Coppersmith (1985)
+   * characteristic rates: Gutenberg-Richter rates between bins {@code iLower}
+   * and {@code iPrime}, and the Gutenberg-Richter rate of {@code magForRate}
+   * between bins {@code iCharStart} and {@code iUpper}.
+   *
+   * @param axis magnitude axis
+   * @param iLower index of lowest non-zero bin
+   * @param iPrime index of the upper bin of the Gutenberg-Richter part
+   * @param iCharStart index of the lowest bin of the characteristic part
+   * @param iUpper index of the highest non-zero bin
+   * @param b value
+   * @param magForRate magnitude of Gutenberg-Richter rate used for the
+   *        characteristic part
+   * @param rates to fill
+   */
+  public static void youngsCoppersmith(Axis axis, int iLower, int iPrime, int iCharStart,
+      int iUpper, double b, double magForRate, double[] rates) {
+    checkBins(axis, iLower, iUpper, rates);
+    double[] powers = axis.powers(b);
+    double charRate = Math.pow(10, -b * magForRate);
+    for (int i = 0; i < powers.length; i++) {
+      rates[i] = 0.0;
+    }
+    for (int i = iLower; i <= iPrime; i++) {
+      rates[i] = powers[i];
+    }
+    for (int i = iCharStart; i <= iUpper; i++) {
+      rates[i] = charRate;
+    }
+  }
+
+  /**
+   * Compute the total moment rate of {@code rates}.
+   *
+   * @param rates incremental rates
+   * @param axis magnitude axis
+   */
+  public static double momentRate(double[] rates, Axis axis) {
+    checkRates(axis, rates);
+    double moRate = 0.0;
+    for (int i = 0; i < axis.size(); i++) {
+      moRate += rates[i] * axis.moments[i];
+    }
+    return moRate;
+  }
+
+  /**
+   * Scale {@code rates} in place to the supplied total moment rate.
+   *
+   * @param rates incremental rates
+   * @param axis magnitude axis
+   * @param moRate target moment rate
+   */
+  public static void scaleToMomentRate(double[] rates, Axis axis, double moRate) {
+    scale(rates, axis.size(), moRate / momentRate(rates, axis));
+  }
+
+  /**
+   * Scale {@code rates} in place such that the cumulative rate at and above
+   * bin {@code index} equals {@code cumRate}.
+   *
+   * @param rates incremental rates
+   * @param axis magnitude axis
+   * @param index of bin
+   * @param cumRate target cumulative rate
+   */
+  public static void scaleToCumRate(double[] rates, Axis axis, int index, double cumRate) {
+    checkRates(axis, rates);
+    double sum = 0.0;
+    for (int i = index; i < axis.size(); i++) {
+      sum += rates[i];
+    }
+    scale(rates, axis.size(), cumRate / sum);
+  }
+
+  private static void scale(double[] rates, int size, double scale) {
+    for (int i = 0; i < size; i++) {
+      rates[i] *= scale;
+    }
+  }
+
+  private static void checkBins(Axis axis, int iMin, int iMax, double[] rates) {
+    checkArgument(iMin >= 0 && iMax < axis.size() && iMin <= iMax,
+        "Invalid bin range [%s, %s] for %s magnitudes", iMin, iMax, axis.size());
+    checkRates(axis, rates);
+  }
+
+  private static void checkRates(Axis axis, double[] rates) {
+    checkArgument(rates.length >= axis.size(),
+        "Rates [%s] shorter than axis [%s]", rates.length, axis.size());
+  }
+
+}
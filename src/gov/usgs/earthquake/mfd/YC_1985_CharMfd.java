@@ -80,8 +80,10 @@ public class YC_1985_CharMfd extends IncrementalMfd {
     this.deltaMagPrime = deltaMagPrime;
     this.bValue = bValue;
 
-    calculateRelativeRates();
-    scaleToTotalMomentRate(totMoRate);
+    MfdKernels.Axis axis = axis();
+    double[] rates = calculateRelativeRates(axis);
+    MfdKernels.scaleToMomentRate(rates, axis, totMoRate);
+    setRates(rates);
   }
 
   /**
@@ -109,8 +111,10 @@ public class YC_1985_CharMfd extends IncrementalMfd {
     this.deltaMagPrime = deltaMagPrime;
     this.bValue = bValue;
 
-    calculateRelativeRates();
-    scaleToTotalMomentRate(totMoRate);
+    MfdKernels.Axis axis = axis();
+    double[] rates = calculateRelativeRates(axis);
+    MfdKernels.scaleToMomentRate(rates, axis, totMoRate);
+    setRates(rates);
   }
 
   /**
@@ -137,8 +141,10 @@ public class YC_1985_CharMfd extends IncrementalMfd {
     this.deltaMagPrime = deltaMagPrime;
     this.bValue = bValue;
 
-    calculateRelativeRates();
-    scaleToTotalMomentRate(totMoRate);
+    MfdKernels.Axis axis = axis();
+    double[] rates = calculateRelativeRates(axis);
+    MfdKernels.scaleToMomentRate(rates, axis, totMoRate);
+    setRates(rates);
   }
 
   /**
@@ -166,7 +172,7 @@ public class YC_1985_CharMfd extends IncrementalMfd {
     this.deltaMagPrime = deltaMagPrime;
     this.bValue = bValue;
 
-    calculateRelativeRates();
+    setRates(calculateRelativeRates(axis()));
     this.scaleToCumRate(magUpper - deltaMagChar, totCharRate);
   }
 
@@ -198,10 +204,10 @@ public class YC_1985_CharMfd extends IncrementalMfd {
   }
 
   /**
-   * private function to set the rate values
+   * private function to compute the relative rate values
    */
 
-  private void calculateRelativeRates() {
+  private double[] calculateRelativeRates(MfdKernels.Axis axis) {
 
     checkArgument(deltaMagChar >= 0.0, "deltaMagChar must be positive");
     checkArgument(deltaMagPrime >= 0.0, "deltaMagPrime must be positive");
@@ -251,24 +257,20 @@ public class YC_1985_CharMfd extends IncrementalMfd {
     int indexForRate = getXIndex(magForRate);
     int indexCharStart = getXIndex(magUpper - deltaMagChar);
 
-    int i;
-
-    for (i = 0; i < num; ++i) {
-      super.set(i, 0.0);
-    }
+    double[] rates = MfdKernels.buffer(num);
+    MfdKernels.youngsCoppersmith(axis, indexLower, indexMagPrime, indexCharStart, indexUpper,
+        bValue, magForRate, rates);
+    return rates;
+  }
 
-    for (i = indexLower; i <= indexMagPrime; ++i) {
-      // to rates between
-      // magLower and magPrime
-      super.set(i, Math.pow(10, -bValue * getX(i)));
-    }
+  private MfdKernels.Axis axis() {
+    return MfdKernels.axis(minX, delta, num);
+  }
 
-    for (i = indexCharStart; i <= indexUpper; ++i) {
-      // characteristic-mag
-      // range
-      super.set(i, Math.pow(10, -bValue * magForRate));
+  private void setRates(double[] rates) {
+    for (int i = 0; i < num; i++) {
+      super.set(i, rates[i]);
     }
-
   }
 
   /**
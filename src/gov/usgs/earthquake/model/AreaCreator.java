@@ -1,13 +1,16 @@
 package gov.usgs.earthquake.model;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static gov.usgs.earthquake.nshmp.eq.fault.surface.RuptureScaling.NSHM_POINT_WC94_LENGTH;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.addComment;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.enumValueMapToString;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DEPTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DIP;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.FOCAL_MECH_MAP;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.MAG_DEPTH_MAP;
+import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.MAX_DEPTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.NAME;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.RAKE;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.RUPTURE_SCALING;
@@ -17,17 +20,25 @@ import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.WIDTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.AREA_SOURCE_SET;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.BORDER;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.DEFAULT_MFDS;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.GRID_SOURCE_SET;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.NODE;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.NODES;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SETTINGS;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE_PROPERTIES;
 
+import gov.usgs.earthquake.nshm.convert.GR_Data;
 import gov.usgs.earthquake.nshm.convert.MFD_Data;
+import gov.usgs.earthquake.nshm.util.Utils;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -42,6 +53,7 @@ import javax.xml.transform.stream.StreamResult;
 
 import gov.usgs.earthquake.nshmp.eq.fault.surface.RuptureScaling;
 import gov.usgs.earthquake.nshmp.eq.model.AreaSource.GridScaling;
+import gov.usgs.earthquake.nshmp.geo.Location;
 import gov.usgs.earthquake.nshmp.geo.LocationList;
 import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
 import org.w3c.dom.Document;
@@ -145,6 +157,111 @@ public class AreaCreator {
     trans.transform(source, result);
   }
 
+  /**
+   * Export the sources as equivalent grid source sets. Each border is
+   * rasterized at the supplied spacing and the MFD of its source is
+   * distributed across the covered nodes in proportion to their exact area of
+   * coverage, conserving the total rate of each source. Grid source sets
+   * carry a single focal mechanism map, so sources are grouped by mechanism
+   * map and each group is written to its own file; if there is more than one
+   * group, files are numbered in order of first appearance (e.g. dest-1.xml,
+   * dest-2.xml). The MFD of the first source in a group is the default, and
+   * nodes only carry the MFD values that differ from it. Only
+   * Gutenberg-Richter MFDs are supported.
+   *
+   * @param dest output file
+   * @param spacing of grid nodes in decimal degrees
+   * @param maxDepth of ruptures
+   */
+  public void exportGrid(Path dest, double spacing, double maxDepth)
+      throws ParserConfigurationException, IOException, TransformerException {
+
+    Map<String, List<SourceData>> groups = new LinkedHashMap<>();
+    for (SourceData source : sourceData) {
+      checkArgument(source.mfdData instanceof GR_Data,
+          "Grid export of %s requires a GR MFD", source.name);
+      List<SourceData> group = groups.get(source.mechStr);
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.put(source.mechStr, group);
+      }
+      group.add(source);
+    }
+
+    if (groups.size() == 1) {
+      exportGrid(dest, name, groups.values().iterator().next(), spacing, maxDepth);
+      return;
+    }
+    String fileName = dest.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    String base = (dot < 0) ? fileName : fileName.substring(0, dot);
+    String ext = (dot < 0) ? "" : fileName.substring(dot);
+    int index = 1;
+    for (List<SourceData> group : groups.values()) {
+      Path groupDest = dest.resolveSibling(base + "-" + index + ext);
+      exportGrid(groupDest, name + " " + index, group, spacing, maxDepth);
+      index++;
+    }
+  }
+
+  private void exportGrid(Path dest, String setName, List<SourceData> sources, double spacing,
+      double maxDepth) throws ParserConfigurationException, IOException, TransformerException {
+
+    DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
+    DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
+
+    // root elements
+    Document doc = docBuilder.newDocument();
+    doc.setXmlStandalone(true);
+    Element root = doc.createElement(GRID_SOURCE_SET.toString());
+    addAttribute(NAME, setName, root);
+    addAttribute(WEIGHT, weight, root);
+    doc.appendChild(root);
+
+    SourceData first = sources.get(0);
+    GR_Data grDat = (GR_Data) first.mfdData;
+    Element settings = addElement(SETTINGS, root);
+    Element mfdRef = addElement(DEFAULT_MFDS, settings);
+    grDat.appendTo(mfdRef, null);
+    Element propsElem = addElement(SOURCE_PROPERTIES, settings);
+    addAttribute(MAG_DEPTH_MAP, depthStr, propsElem);
+    addAttribute(MAX_DEPTH, maxDepth, propsElem);
+    addAttribute(FOCAL_MECH_MAP, first.mechStr, propsElem);
+    addAttribute(STRIKE, Double.NaN, propsElem);
+    addAttribute(RUPTURE_SCALING, NSHM_POINT_WC94_LENGTH, propsElem);
+
+    Element nodesElem = addElement(NODES, root);
+    for (SourceData source : sources) {
+      GR_Data gr = (GR_Data) source.mfdData;
+      // corner magnitude can not be overridden by nodes
+      checkArgument(gr.cMag == grDat.cMag,
+          "Corner magnitude of %s differs from default of %s", source.name, first.name);
+      AreaRasterizer raster = AreaRasterizer.rasterize(source.border, spacing);
+      addComment(" " + source.name + " ", nodesElem);
+      for (int i = 0; i < raster.size(); i++) {
+        Element nodeElem = addElement(NODE, nodesElem);
+        Location loc = Location.create(raster.lats[i], raster.lons[i], 0.0);
+        nodeElem.setTextContent(Utils.locToString(loc));
+        GR_Data nodeGr = GR_Data.create(
+            gr.aVal + Math.log10(raster.weights[i]),
+            gr.bVal, gr.mMin, gr.mMax, gr.dMag, gr.weight);
+        nodeGr.cMag = gr.cMag;
+        nodeGr.addAttributesToElement(nodeElem, grDat);
+      }
+    }
+
+    // write the content into xml file
+    TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    Transformer trans = transformerFactory.newTransformer();
+    trans.setOutputProperty(OutputKeys.INDENT, "yes");
+    trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    trans.setOutputProperty(OutputKeys.STANDALONE, "yes");
+
+    try (OutputStream out = Files.newOutputStream(dest)) {
+      trans.transform(new DOMSource(doc), new StreamResult(out));
+    }
+  }
+
   // source attribute settings
   private void addSourceProperties(Element settings) {
     Element propsElem = addElement(SOURCE_PROPERTIES, settings);
@@ -0,0 +1,168 @@
+package gov.usgs.earthquake.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.geo.LocationList;
+
+import java.util.Arrays;
+
+/*
+ * Exact rasterization of a polygon onto a regular lat-lon grid. Grid nodes lie
+ * at integer multiples of the grid spacing and each node represents the cell
+ * extending half a spacing in each direction. The polygon is clipped once to
+ * each row of cells (a horizontal band) and each band is then clipped to the
+ * cells it spans, so partial coverage is computed from exact clipped areas
+ * rather than from point-in-polygon tests. Areas are computed in degrees and
+ * scaled by the cosine of the row latitude; node weights are normalized to sum
+ * to one.
+ *
+ * Polygons must be simple (not self-intersecting); concave polygons are
+ * supported.
+ *
+ * @author Peter Powers
+ */
+final class AreaRasterizer {
+
+  final double[] lats;
+  final double[] lons;
+  final double[] weights;
+
+  private AreaRasterizer(double[] lats, double[] lons, double[] weights) {
+    this.lats = lats;
+    this.lons = lons;
+    this.weights = weights;
+  }
+
+  /* Number of nodes with non-zero coverage. */
+  int size() {
+    return weights.length;
+  }
+
+  static AreaRasterizer rasterize(LocationList border, double spacing) {
+    checkArgument(spacing > 0.0, "Spacing [%s] must be greater than 0", spacing);
+    checkArgument(border.size() > 2, "Border must have at least 3 points");
+    int n = border.size();
+    double[][] polygon = new double[2][n];
+    double minLat = Double.POSITIVE_INFINITY;
+    double maxLat = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < n; i++) {
+      Location loc = border.get(i);
+      polygon[0][i] = loc.lon();
+      polygon[1][i] = loc.lat();
+      minLat = Math.min(minLat, loc.lat());
+      maxLat = Math.max(maxLat, loc.lat());
+    }
+
+    int capacity = 64;
+    double[] lats = new double[capacity];
+    double[] lons = new double[capacity];
+    double[] weights = new double[capacity];
+    int count = 0;
+    double total = 0.0;
+
+    for (int row = cellIndex(minLat, spacing); row <= cellIndex(maxLat, spacing); row++) {
+      double lat = row * spacing;
+      double[][] band = clip(polygon, 1, lat - spacing / 2.0, true);
+      band = clip(band, 1, lat + spacing / 2.0, false);
+      if (band[0].length < 3) continue;
+
+      double minLon = Double.POSITIVE_INFINITY;
+      double maxLon = Double.NEGATIVE_INFINITY;
+      for (double lon : band[0]) {
+        minLon = Math.min(minLon, lon);
+        maxLon = Math.max(maxLon, lon);
+      }
+      double scale = Math.cos(Math.toRadians(lat));
+
+      for (int col = cellIndex(minLon, spacing); col <= cellIndex(maxLon, spacing); col++) {
+        double lon = col * spacing;
+        double[][] cell = clip(band, 0, lon - spacing / 2.0, true);
+        cell = clip(cell, 0, lon + spacing / 2.0, false);
+        double weight = area(cell) * scale;
+        if (weight <= 0.0) continue;
+        if (count == capacity) {
+          capacity *= 2;
+          lats = Arrays.copyOf(lats, capacity);
+          lons = Arrays.copyOf(lons, capacity);
+          weights = Arrays.copyOf(weights, capacity);
+        }
+        lats[count] = lat;
+        lons[count] = lon;
+        weights[count] = weight;
+        total += weight;
+        count++;
+      }
+    }
+
+    checkState(total > 0.0, "Border has no area: %s", border);
+    for (int i = 0; i < count; i++) {
+      weights[i] /= total;
+    }
+    return new AreaRasterizer(
+        Arrays.copyOf(lats, count),
+        Arrays.copyOf(lons, count),
+        Arrays.copyOf(weights, count));
+  }
+
+  /* Index of the cell that contains the supplied coordinate. */
+  private static int cellIndex(double value, double spacing) {
+    return (int) Math.floor(value / spacing + 0.5);
+  }
+
+  /*
+   * Sutherland-Hodgman clip of a polygon [x[], y[]] against a half-plane on
+   * the supplied axis (0 = x, 1 = y); keeps values ≥ bound if keepAbove is
+   * true, otherwise values ≤ bound.
+   */
+  private static double[][] clip(double[][] polygon, int axis, double bound, boolean keepAbove) {
+    double[] x = polygon[0];
+    double[] y = polygon[1];
+    int n = x.length;
+    if (n == 0) return polygon;
+    double[] cx = new double[n * 2];
+    double[] cy = new double[n * 2];
+    int count = 0;
+    double[] v = polygon[axis];
+    int prev = n - 1;
+    boolean prevIn = inside(v[prev], bound, keepAbove);
+    for (int i = 0; i < n; i++) {
+      boolean in = inside(v[i], bound, keepAbove);
+      if (in != prevIn) {
+        double f = (bound - v[prev]) / (v[i] - v[prev]);
+        cx[count] = x[prev] + f * (x[i] - x[prev]);
+        cy[count] = y[prev] + f * (y[i] - y[prev]);
+        if (axis == 0) cx[count] = bound;
+        if (axis == 1) cy[count] = bound;
+        count++;
+      }
+      if (in) {
+        cx[count] = x[i];
+        cy[count] = y[i];
+        count++;
+      }
+      prev = i;
+      prevIn = in;
+    }
+    return new double[][] { Arrays.copyOf(cx, count), Arrays.copyOf(cy, count) };
+  }
+
+  private static boolean inside(double value, double bound, boolean keepAbove) {
+    return keepAbove ? value >= bound : value <= bound;
+  }
+
+  /* Shoelace area. */
+  private static double area(double[][] polygon) {
+    double[] x = polygon[0];
+    double[] y = polygon[1];
+    int n = x.length;
+    if (n < 3) return 0.0;
+    double sum = 0.0;
+    for (int i = 0, j = n - 1; i < n; j = i++) {
+      sum += (x[j] + x[i]) * (y[j] - y[i]);
+    }
+    return Math.abs(sum) / 2.0;
+  }
+
+}
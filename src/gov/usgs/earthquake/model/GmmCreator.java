@@ -14,6 +14,7 @@ import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -83,8 +84,9 @@ public class GmmCreator {
     trans.setOutputProperty(OutputKeys.STANDALONE, "yes");
     DOMSource source = new DOMSource(doc);
     Files.createDirectories(dest.getParent());
-    StreamResult result = new StreamResult(Files.newOutputStream(dest));
-    trans.transform(source, result);
+    try (OutputStream out = Files.newOutputStream(dest)) {
+      trans.transform(source, new StreamResult(out));
+    }
   }
 
 }
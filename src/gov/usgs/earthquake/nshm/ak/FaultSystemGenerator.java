@@ -0,0 +1,360 @@
+package gov.usgs.earthquake.nshm.ak;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static gov.usgs.earthquake.nshm.ak.AkData.AK_M_UNCERTAINTY;
+import static gov.usgs.earthquake.nshm.ak.AkData.AK_SCALING;
+import static gov.usgs.earthquake.nshm.ak.VariableSlipUtil.TARGET_SECTION_LENGTH;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToList;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.stripComment;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+
+import gov.usgs.earthquake.nshm.util.Utils;
+import gov.usgs.earthquake.nshmp.data.XyPoint;
+import gov.usgs.earthquake.nshmp.data.XySequence;
+import gov.usgs.earthquake.nshmp.eq.fault.Faults;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.geo.LocationList;
+import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
+import gov.usgs.earthquake.nshmp.mfd.Mfds;
+
+/*
+ * Data-driven variant of the VariableSlipUtil methodology that builds
+ * system-style sources with along-strike slip variability for any number of
+ * faults defined in a text file. For each fault, the trace is partitioned into
+ * ~4 km sections, slip rates are interpolated between anchors, GR and CH MFDs
+ * are balanced to the total section moment rate, and floating ruptures are
+ * enumerated for each MFD magnitude using AK_SCALING rupture lengths. Faults
+ * are processed concurrently, as are the magnitudes of each MFD branch.
+ * Sections and ruptures are written using SystemCreator.
+ *
+ * Fault definition files are whitespace delimited; '#' starts a comment. Each
+ * fault is a block of keyword lines ending with 'end':
+ *
+ *   fault <name>
+ *   dip <degrees>
+ *   width <km>
+ *   depth <km>
+ *   lowerDepth <km>
+ *   rake <degrees>
+ *   aseis <fraction>        (optional, default 0.0)
+ *   trace                   (followed by one 'lat lon' line per point)
+ *   slip <traceIndex> <mm/yr>
+ *   gr <mMin> <mMax> <dMag> <b> <weight>
+ *   ch <m> <weight>
+ *   end
+ *
+ * Slip anchors must include the first and last trace points; slip, gr, and ch
+ * lines may be repeated. MFD epistemic and aleatory uncertainty is that of the
+ * 2007 Alaska model (AK_M_UNCERTAINTY).
+ *
+ * @author Peter Powers
+ */
+class FaultSystemGenerator {
+
+  static final Path OUT_DIR = Paths.get("models/AK2007/System/");
+
+  public static void main(String[] args) throws Exception {
+    checkArgument(args.length > 0, "Usage: FaultSystemGenerator <fault-file> [out-dir]");
+    Path outDir = args.length > 1 ? Paths.get(args[1]) : OUT_DIR;
+    generate(Paths.get(args[0]), outDir);
+  }
+
+  /* Read fault definitions and write system sources for each. */
+  static void generate(Path faultFile, final Path outDir) throws IOException {
+    List<FaultDefinition> faults = read(faultFile);
+    System.out.println("Fault definitions: " + faults.size());
+    final String reference = faultFile.getFileName().toString();
+    List<Callable<Void>> tasks = new ArrayList<>(faults.size());
+    for (final FaultDefinition fault : faults) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          FaultSystem system = build(fault);
+          SystemCreator.writeSections(outDir, fault.name, reference, system.sections);
+          SystemCreator.writeRuptures(outDir, fault.name, -1, 1.0, reference, system.ruptures);
+          System.out.println(String.format("  %s: %s sections, %s ruptures",
+              fault.name, system.sections.size(), system.ruptureCount()));
+          return null;
+        }
+      });
+    }
+    Utils.invokeAll(tasks);
+  }
+
+  /* Fault definition as read from file. */
+  static final class FaultDefinition {
+
+    String name;
+    double dip = Double.NaN;
+    double width = Double.NaN;
+    double depth = Double.NaN;
+    double lowerDepth = Double.NaN;
+    double rake = Double.NaN;
+    double aseis = 0.0;
+    LocationList trace;
+    final Map<Integer, Double> slip = new TreeMap<>();
+    final Map<Integer, double[]> grBranches = new TreeMap<>();
+    final Map<Integer, double[]> chBranches = new TreeMap<>();
+
+    void validate() {
+      checkState(name != null, "Missing fault name");
+      checkState(!Double.isNaN(dip), "Missing dip for %s", name);
+      checkState(!Double.isNaN(width), "Missing width for %s", name);
+      checkState(!Double.isNaN(depth), "Missing depth for %s", name);
+      checkState(!Double.isNaN(lowerDepth), "Missing lowerDepth for %s", name);
+      checkState(!Double.isNaN(rake), "Missing rake for %s", name);
+      checkState(trace != null && trace.size() > 1, "Invalid trace for %s", name);
+      checkState(slip.containsKey(0) && slip.containsKey(trace.size() - 1),
+          "Slip anchors for %s must include first and last trace points", name);
+      checkState(!grBranches.isEmpty() || !chBranches.isEmpty(), "No MFDs for %s", name);
+    }
+  }
+
+  /* Derived sections and ruptures of a single fault. */
+  static final class FaultSystem {
+
+    final List<FaultSection> sections;
+    final double moRate;
+    final Map<String, List<Rupture>> ruptures;
+
+    FaultSystem(List<FaultSection> sections, double moRate,
+        Map<String, List<Rupture>> ruptures) {
+      this.sections = sections;
+      this.moRate = moRate;
+      this.ruptures = ruptures;
+    }
+
+    int ruptureCount() {
+      int count = 0;
+      for (List<Rupture> list : ruptures.values()) {
+        count += list.size();
+      }
+      return count;
+    }
+  }
+
+  static List<FaultDefinition> read(Path path) throws IOException {
+    ImmutableList.Builder<FaultDefinition> faults = ImmutableList.builder();
+    FaultDefinition fault = null;
+    LocationList.Builder trace = null;
+    int lineIndex = 0;
+    for (String rawLine : Files.readAllLines(path, UTF_8)) {
+      lineIndex++;
+      String line = stripComment(rawLine, '#').trim();
+      if (line.isEmpty()) continue;
+      List<String> parts = splitToList(line, SPACE);
+      String key = parts.get(0);
+
+      if (key.equals("fault")) {
+        checkState(fault == null, "Unterminated fault before line %s", lineIndex);
+        fault = new FaultDefinition();
+        fault.name = line.substring(key.length()).trim();
+        continue;
+      }
+      checkState(fault != null, "Data outside fault block at line %s", lineIndex);
+
+      /* trace points are the only lines that start with a number */
+      if (trace != null && isNumeric(key)) {
+        trace.add(Location.create(
+            Double.parseDouble(parts.get(0)),
+            Double.parseDouble(parts.get(1))));
+        continue;
+      }
+      if (trace != null) {
+        fault.trace = trace.build();
+        trace = null;
+      }
+
+      switch (key) {
+        case "dip":
+          fault.dip = readValue(parts, lineIndex);
+          break;
+        case "width":
+          fault.width = readValue(parts, lineIndex);
+          break;
+        case "depth":
+          fault.depth = readValue(parts, lineIndex);
+          break;
+        case "lowerDepth":
+          fault.lowerDepth = readValue(parts, lineIndex);
+          break;
+        case "rake":
+          fault.rake = readValue(parts, lineIndex);
+          break;
+        case "aseis":
+          fault.aseis = readValue(parts, lineIndex);
+          break;
+        case "trace":
+          trace = LocationList.builder();
+          break;
+        case "slip":
+          checkState(parts.size() == 3, "Invalid slip anchor at line %s", lineIndex);
+          fault.slip.put(Integer.parseInt(parts.get(1)), Double.parseDouble(parts.get(2)));
+          break;
+        case "gr":
+          fault.grBranches.put(lineIndex, readValues(parts, 5, lineIndex));
+          break;
+        case "ch":
+          fault.chBranches.put(lineIndex, readValues(parts, 2, lineIndex));
+          break;
+        case "end":
+          fault.validate();
+          faults.add(fault);
+          fault = null;
+          break;
+        default:
+          throw new IllegalStateException(
+              "Unknown keyword '" + key + "' at line " + lineIndex);
+      }
+    }
+    checkState(fault == null, "Unterminated fault at end of file");
+    return faults.build();
+  }
+
+  private static boolean isNumeric(String s) {
+    char c = s.charAt(0);
+    return Character.isDigit(c) || c == '-' || c == '+' || c == '.';
+  }
+
+  private static double readValue(List<String> parts, int lineIndex) {
+    return readValues(parts, 1, lineIndex)[0];
+  }
+
+  private static double[] readValues(List<String> parts, int count, int lineIndex) {
+    checkState(parts.size() == count + 1, "Expected %s values for '%s' at line %s",
+        count, parts.get(0), lineIndex);
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = Double.parseDouble(parts.get(i + 1));
+    }
+    return values;
+  }
+
+  /* Build sections, MFDs, and ruptures for a fault. */
+  static FaultSystem build(FaultDefinition fault) {
+    List<LocationList> traces = fault.trace.partition(TARGET_SECTION_LENGTH);
+    List<Double> slipRates = VariableSlipUtil.computeSectionSlip(
+        fault.trace,
+        traces,
+        ImmutableSortedMap.copyOf(fault.slip));
+    List<FaultSection> sections = VariableSlipUtil.createSections(
+        0,
+        fault.name,
+        traces,
+        slipRates,
+        fault.depth,
+        fault.lowerDepth,
+        fault.dip,
+        fault.width,
+        Faults.dipDirection(fault.trace),
+        fault.aseis);
+    double moRate = VariableSlipUtil.momentRate(sections);
+
+    /*
+     * MFD keys are prefixed with the line index of their branch; repeated or
+     * similar gr and ch lines would otherwise yield duplicate keys.
+     */
+    ImmutableMap.Builder<String, IncrementalMfd> mfds = ImmutableMap.builder();
+    for (Entry<Integer, double[]> entry : fault.grBranches.entrySet()) {
+      double[] gr = entry.getValue();
+      putBranch(mfds, entry.getKey(), VariableSlipUtil.grMfds(
+          gr[0], gr[1], gr[2], gr[3], gr[4], moRate, AK_M_UNCERTAINTY));
+    }
+    for (Entry<Integer, double[]> entry : fault.chBranches.entrySet()) {
+      double[] ch = entry.getValue();
+      putBranch(mfds, entry.getKey(), VariableSlipUtil.chMfds(
+          ch[0], ch[1], moRate, AK_M_UNCERTAINTY));
+    }
+
+    ImmutableMap.Builder<String, List<Rupture>> ruptures = ImmutableMap.builder();
+    for (Entry<String, IncrementalMfd> entry : mfds.build().entrySet()) {
+      ruptures.put(entry.getKey(), ruptureList(entry.getValue(), sections, fault));
+    }
+    return new FaultSystem(sections, moRate, ruptures.build());
+  }
+
+  private static void putBranch(
+      ImmutableMap.Builder<String, IncrementalMfd> mfds,
+      int lineIndex,
+      Map<String, IncrementalMfd> branchMfds) {
+
+    for (Entry<String, IncrementalMfd> entry : branchMfds.entrySet()) {
+      mfds.put(String.format(" [line %s]%s", lineIndex, entry.getKey()), entry.getValue());
+    }
+  }
+
+  /*
+   * Ruptures for each magnitude of an MFD are enumerated concurrently; list
+   * order matches that of VariableSlipUtil.createRuptureLists(). Section
+   * counts are clamped to [1, sections.size()]; magnitudes that hit either
+   * limit are reported.
+   */
+  private static List<Rupture> ruptureList(
+      IncrementalMfd mfd,
+      final List<FaultSection> sections,
+      final FaultDefinition fault) {
+
+    XySequence xy = Mfds.toSequence(mfd);
+    final List<XyPoint> points = new ArrayList<>();
+    for (XyPoint point : xy) {
+      points.add(point);
+    }
+    final int[] counts = new int[points.size()];
+    for (int i = 0; i < counts.length; i++) {
+      double m = points.get(i).x();
+      int n = magSectionCount(m, fault.width);
+      counts[i] = Math.max(1, Math.min(n, sections.size()));
+      if (counts[i] != n) {
+        System.out.println(String.format(
+            "  %s: M=%s rupture spans %s sections of %s; clamped to %s",
+            fault.name, m, n, sections.size(), counts[i]));
+      }
+    }
+    List<List<Rupture>> magRuptures = IntStream.range(0, counts.length).parallel()
+        .mapToObj(i -> {
+          XyPoint point = points.get(i);
+          return VariableSlipUtil.rupturesForMag(
+              sections,
+              counts[i],
+              point.x(),
+              point.y(),
+              fault.dip,
+              fault.depth,
+              fault.width,
+              fault.rake);
+        })
+        .collect(Collectors.toList());
+
+    ImmutableList.Builder<Rupture> ruptures = ImmutableList.builder();
+    for (List<Rupture> list : magRuptures) {
+      ruptures.addAll(list);
+    }
+    return ruptures.build();
+  }
+
+  /* Number of sections spanned by a rupture of magnitude m on a fault. */
+  static int magSectionCount(double m, double width) {
+    double length = AK_SCALING.dimensions(m, width).length;
+    return (int) Math.rint(length / TARGET_SECTION_LENGTH);
+  }
+
+}
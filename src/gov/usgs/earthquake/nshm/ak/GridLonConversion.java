@@ -2,16 +2,22 @@ package gov.usgs.earthquake.nshm.ak;
 
 import gov.usgs.earthquake.nshmp.util.Maths;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 /*
- * Conversion of large grid files (back) to negative longitude values
+ * Conversion of large grid files (back) to negative longitude values.
+ * 
+ * Files are streamed line by line so memory use is independent of file size.
+ * Only the longitude field of each Node line is rewritten; all other content
+ * is copied through unchanged. Other per-node longitude transforms may be
+ * supplied to transformLons().
  */
 class GridLonConversion {
 
@@ -19,6 +25,19 @@ class GridLonConversion {
   static final Path IN_DIR = FILEBASE.resolve("in");
   static final Path OUT_DIR = FILEBASE.resolve("out");
 
+  private static final String NODE = "<Node";
+
+  /* 0 to 360 longitudes to -180 to 0. */
+  static final DoubleUnaryOperator TO_NEGATIVE = lon -> Maths.round(lon - 360.0, 1);
+
+  /* -180 to 0 longitudes to 0 to 360. */
+  static final DoubleUnaryOperator TO_POSITIVE = lon -> Maths.round(lon + 360.0, 1);
+
+  /* Longitude rounding to the nearest multiple of spacing. */
+  static DoubleUnaryOperator snapTo(double spacing) {
+    return lon -> Maths.round(Math.rint(lon / spacing) * spacing, 6);
+  }
+
   public static void main(String[] args) throws IOException {
     convertLons("50 to 80 km.xml");
     convertLons("80 to 120 km.xml");
@@ -26,25 +45,45 @@ class GridLonConversion {
   }
 
   static void convertLons(String filename) throws IOException {
+    transformLons(IN_DIR.resolve(filename), OUT_DIR.resolve(filename), TO_NEGATIVE);
+  }
+
+  /*
+   * Stream 'in' to 'out' applying the supplied transform to the leading
+   * longitude of the 'lon,lat,depth' content of each Node element.
+   */
+  static void transformLons(Path in, Path out, DoubleUnaryOperator transform)
+      throws IOException {
+
+    try (
+        BufferedReader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8);
+        BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
 
-    Path inPath = IN_DIR.resolve(filename);
-    List<String> linesIn = Files.readAllLines(inPath, StandardCharsets.UTF_8);
-    List<String> linesOut = new ArrayList<>(linesIn.size());
-
-    for (String lineIn : linesIn) {
-      if (lineIn.startsWith("    <Node")) {
-        int start = lineIn.indexOf('>') + 1;
-        int end = lineIn.indexOf(',');
-        double oldLon = Double.parseDouble(lineIn.substring(start, end));
-        double newLon = Maths.round(oldLon - 360.0, 1);
-        String newLine = lineIn.substring(0, start) + newLon + lineIn.substring(end);
-        linesOut.add(newLine);
-      } else {
-        linesOut.add(lineIn);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int start = nodeContentStart(line);
+        int end = (start < 0) ? -1 : line.indexOf(',', start);
+        if (end < 0) {
+          writer.write(line);
+        } else {
+          double lon = Double.parseDouble(line.substring(start, end));
+          writer.write(line, 0, start);
+          writer.write(Double.toString(transform.applyAsDouble(lon)));
+          writer.write(line, end, line.length() - end);
+        }
+        writer.newLine();
       }
     }
+  }
 
-    Path outPath = OUT_DIR.resolve(filename);
-    Files.write(outPath, linesOut, StandardCharsets.UTF_8);
+  /* Index of the first character of Node content, or -1. */
+  private static int nodeContentStart(String line) {
+    int i = 0;
+    while (i < line.length() && line.charAt(i) == ' ') {
+      i++;
+    }
+    if (!line.startsWith(NODE, i)) return -1;
+    int start = line.indexOf('>', i + NODE.length());
+    return (start < 0) ? -1 : start + 1;
   }
 }
@@ -22,6 +22,8 @@ import gov.usgs.earthquake.nshm.convert.CH_Data;
 class Rupture {
 
   String indices;
+  int firstIndex;
+  int lastIndex;
   double mag;
   double rate;
   double depth;
@@ -45,6 +47,8 @@ class Rupture {
   Rupture copy() {
     Rupture rupture = new Rupture();
     rupture.indices = this.indices;
+    rupture.firstIndex = this.firstIndex;
+    rupture.lastIndex = this.lastIndex;
     rupture.mag = this.mag;
     rupture.rate = this.rate;
     rupture.depth = this.depth;
@@ -54,6 +58,16 @@ class Rupture {
     return rupture;
   }
 
+  /*
+   * Compact key of the first and last section of this rupture. Ruptures that
+   * span non-contiguous sections (e.g. Denali Center-Totschunda) may share a
+   * key with a different section list; equal keys must be confirmed by
+   * comparing index range strings.
+   */
+  long key() {
+    return ((long) firstIndex << 32) | (lastIndex & 0xffffffffL);
+  }
+
   static List<Integer> toIndices(List<FaultSection> sections) {
     return FluentIterable.from(sections)
         .transform(new Function<FaultSection, Integer>() {
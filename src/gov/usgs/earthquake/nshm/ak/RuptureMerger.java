@@ -0,0 +1,103 @@
+package gov.usgs.earthquake.nshm.ak;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Merges multiple rupture sets in a single pass, summing the rates of
+ * ruptures that span identical section lists. Ruptures are keyed on a packed
+ * first/last section index long (Rupture.key()) stored in an open-addressing,
+ * linear-probing hash table of primitives, so no per-rupture keys are
+ * allocated. Because non-contiguous ruptures may share first and last
+ * sections, a key match is only a merge if the index range strings are also
+ * equal; otherwise probing continues. Output order is first occurrence order: all ruptures of the first
+ * set, followed by the previously unseen ruptures of each subsequent set.
+ *
+ * Supplied ruptures are not modified; a rupture is copied only when another
+ * rate is added to it.
+ *
+ * @author Peter Powers
+ */
+final class RuptureMerger {
+
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private final long[] keys;
+  private final int[] slots;
+  private final int mask;
+
+  private final List<Rupture> merged;
+  private final int[] owners;
+  private final boolean[] copied;
+
+  private RuptureMerger(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+    keys = new long[size];
+    Arrays.fill(keys, EMPTY);
+    slots = new int[size];
+    mask = size - 1;
+    merged = new ArrayList<>(capacity);
+    owners = new int[capacity];
+    copied = new boolean[capacity];
+  }
+
+  /*
+   * Merge the supplied rupture sets. Section ranges must be unique within each
+   * set.
+   */
+  static List<Rupture> merge(List<List<Rupture>> ruptureSets) {
+    int capacity = 0;
+    for (List<Rupture> ruptures : ruptureSets) {
+      capacity += ruptures.size();
+    }
+    RuptureMerger merger = new RuptureMerger(capacity);
+    for (int i = 0; i < ruptureSets.size(); i++) {
+      for (Rupture rupture : ruptureSets.get(i)) {
+        merger.add(rupture, i);
+      }
+    }
+    return merger.merged;
+  }
+
+  private void add(Rupture rupture, int owner) {
+    long key = rupture.key();
+    int hash = hash(key) & mask;
+    while (true) {
+      long k = keys[hash];
+      if (k == EMPTY) {
+        keys[hash] = key;
+        int slot = merged.size();
+        slots[hash] = slot;
+        owners[slot] = owner;
+        merged.add(rupture);
+        return;
+      }
+      if (k == key && merged.get(slots[hash]).indices.equals(rupture.indices)) {
+        int slot = slots[hash];
+        checkState(owners[slot] != owner,
+            "Duplicate rupture [%s] in rupture set %s", rupture.indices, owner);
+        if (!copied[slot]) {
+          merged.set(slot, merged.get(slot).copy());
+          copied[slot] = true;
+        }
+        merged.get(slot).rate += rupture.rate;
+        return;
+      }
+      hash = (hash + 1) & mask;
+    }
+  }
+
+  /* 64-bit finalizer from MurmurHash3. */
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+}
@@ -4,14 +4,8 @@ import static gov.usgs.earthquake.nshm.ak.VariableSlipUtil.*;
 
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addComment;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
-import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ID;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.NAME;
-import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.WEIGHT;
-import static gov.usgs.earthquake.nshmp.internal.SourceElement.DEFAULT_MFDS;
-import static gov.usgs.earthquake.nshmp.internal.SourceElement.SETTINGS;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SYSTEM_FAULT_SECTIONS;
-import static gov.usgs.earthquake.nshmp.internal.SourceElement.SYSTEM_SOURCE_SET;
 
 import gov.usgs.earthquake.nshmp.internal.Parsing;
 import gov.usgs.earthquake.nshmp.util.Maths;
@@ -24,6 +18,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,6 +34,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import gov.usgs.earthquake.nshm.convert.CH_Data;
+import gov.usgs.earthquake.nshm.convert.RuptureShards;
 
 /*
  * Build system-style sources for AK faults with along-strike slip variability.
@@ -58,20 +54,31 @@ class SystemCreator {
 
   static final String REF = "AKF2.out_revF.in, AKF3.out_revF.in";
 
+  /* Reference MFD for rupture files; rupture MFDs only record differences. */
+  static final CH_Data REF_CH = CH_Data.create(6.5, 0.0, 1.0, false);
+
+  /* Number of rupture file shards per system; 0 writes a single file. */
+  static final int RUPTURE_SHARDS = 0;
+  static final RuptureShards.Mode SHARD_MODE = RuptureShards.Mode.INDEX;
+
   public static void main(String[] args) throws Exception {
 
-    writeSections(CASTLE_MTN_NAME, REF, CASTLE_MTN_SECTIONS);
-    writeRuptures(CASTLE_MTN_NAME, -1, 1.0, REF, CASTLE_MTN_RUPTURES);
+    buildAll();
 
-    writeSections(DENALI_TOTSCHUNDA_NAME + " (CE)", REF, DENALI_CENTER_EAST_SECTIONS);
-    writeRuptures(DENALI_TOTSCHUNDA_NAME + " (CE)", -1, 1.0, REF, DENALI_CENTER_EAST_RUPTURES);
+    writeSections(CASTLE_MTN_NAME, REF, CASTLE_MTN_SECTIONS.get());
+    writeRuptures(CASTLE_MTN_NAME, -1, 1.0, REF, CASTLE_MTN_RUPTURES.get());
 
-    writeSections(DENALI_TOTSCHUNDA_NAME + " (CT)", REF, DENALI_CENTER_TOTSCHUNDA_SECTIONS);
+    writeSections(DENALI_TOTSCHUNDA_NAME + " (CE)", REF, DENALI_CENTER_EAST_SECTIONS.get());
+    writeRuptures(DENALI_TOTSCHUNDA_NAME + " (CE)", -1, 1.0, REF,
+        DENALI_CENTER_EAST_RUPTURES.get());
+
+    writeSections(DENALI_TOTSCHUNDA_NAME + " (CT)", REF,
+        DENALI_CENTER_TOTSCHUNDA_SECTIONS.get());
     writeRuptures(DENALI_TOTSCHUNDA_NAME + " (CT)", -1, 1.0, REF,
-        DENALI_CENTER_TOTSCHUNDA_RUPTURES);
+        DENALI_CENTER_TOTSCHUNDA_RUPTURES.get());
 
-    writeSections(DENALI_TOTSCHUNDA_NAME, REF, DENALI_TOTSCHUNDA_SECTIONS);
-    writeRuptures(DENALI_TOTSCHUNDA_NAME, -1, 1.0, REF, DENALI_TOTSCHUNDA_RUPTURES);
+    writeSections(DENALI_TOTSCHUNDA_NAME, REF, DENALI_TOTSCHUNDA_SECTIONS.get());
+    writeRuptures(DENALI_TOTSCHUNDA_NAME, -1, 1.0, REF, DENALI_TOTSCHUNDA_RUPTURES.get());
 
   }
 
@@ -81,7 +88,17 @@ class SystemCreator {
       List<FaultSection> sections)
       throws IOException, ParserConfigurationException, TransformerException {
 
-    Path dirOut = OUT_DIR.resolve(name);
+    writeSections(OUT_DIR, name, reference, sections);
+  }
+
+  static void writeSections(
+      Path outDir,
+      String name,
+      String reference,
+      List<FaultSection> sections)
+      throws IOException, ParserConfigurationException, TransformerException {
+
+    Path dirOut = outDir.resolve(name);
     Files.createDirectories(dirOut);
     File out = dirOut.resolve(SECTION_XML_OUT).toFile();
 
@@ -118,7 +135,23 @@ class SystemCreator {
       Map<String, List<Rupture>> ruptureMap)
       throws IOException, ParserConfigurationException, TransformerException {
 
-    Path dirOut = OUT_DIR.resolve(name);
+    if (RUPTURE_SHARDS > 0) {
+      writeRuptureShards(name, id, weight, reference, ruptureMap, SHARD_MODE, RUPTURE_SHARDS);
+      return;
+    }
+    writeRuptures(OUT_DIR, name, id, weight, reference, ruptureMap);
+  }
+
+  static void writeRuptures(
+      Path outDir,
+      String name,
+      int id,
+      double weight,
+      String reference,
+      Map<String, List<Rupture>> ruptureMap)
+      throws IOException, ParserConfigurationException, TransformerException {
+
+    Path dirOut = outDir.resolve(name);
     Files.createDirectories(dirOut);
     File out = dirOut.resolve(RUPTURES_XML_OUT).toFile();
 
@@ -127,19 +160,7 @@ class SystemCreator {
 
     // file out
     Document docOut = dBuilder.newDocument();
-    Element root = docOut.createElement(SYSTEM_SOURCE_SET.toString());
-    docOut.appendChild(root);
-    addAttribute(NAME, name, root);
-    addAttribute(WEIGHT, weight, root);
-    addAttribute(ID, id, root);
-    addDisclaimer(root);
-    addComment(" Reference: " + reference + " ", root);
-
-    // settings and defaults
-    Element settings = addElement(SETTINGS, root);
-    Element mfdRef = addElement(DEFAULT_MFDS, settings);
-    CH_Data refCH = CH_Data.create(6.5, 0.0, 1.0, false);
-    refCH.appendTo(mfdRef, null);
+    Element root = createRupturesRoot(docOut, name, id, weight, reference);
 
     for (Entry<String, List<Rupture>> entry : ruptureMap.entrySet()) {
       addComment(entry.getKey(), root);
@@ -149,7 +170,7 @@ class SystemCreator {
           mag = rupture.mag;
           addComment(String.format(" M=%s ", Maths.round(mag, 3)), root);
         }
-        rupture.appendTo(root, refCH);
+        rupture.appendTo(root, REF_CH);
       }
     }
 
@@ -164,6 +185,87 @@ class SystemCreator {
 
   }
 
+  /*
+   * Sharded alternative to writeRuptures(). The ruptures of all MFD branches
+   * are split across 'count' files by index range or magnitude band; see
+   * RuptureShards. The unsharded file is also written and reconciled with the
+   * shards. Branch and magnitude comments are repeated at the start of each
+   * shard as required.
+   */
+  static void writeRuptureShards(
+      final String name,
+      final int id,
+      final double weight,
+      final String reference,
+      Map<String, List<Rupture>> ruptureMap,
+      RuptureShards.Mode mode,
+      int count)
+      throws IOException {
+
+    Path dirOut = OUT_DIR.resolve(name);
+    Files.createDirectories(dirOut);
+
+    final List<String> keys = new ArrayList<>();
+    final List<Rupture> ruptures = new ArrayList<>();
+    for (Entry<String, List<Rupture>> entry : ruptureMap.entrySet()) {
+      for (Rupture rupture : entry.getValue()) {
+        keys.add(entry.getKey());
+        ruptures.add(rupture);
+      }
+    }
+
+    RuptureShards.Ruptures shardRuptures = new RuptureShards.Ruptures() {
+
+      @Override
+      public int size() {
+        return ruptures.size();
+      }
+
+      @Override
+      public double mag(int index) {
+        return ruptures.get(index).mag;
+      }
+
+      @Override
+      public double rate(int index) {
+        return ruptures.get(index).rate;
+      }
+
+      @Override
+      public Element createRoot(Document doc) {
+        return createRupturesRoot(doc, name, id, weight, reference);
+      }
+
+      @Override
+      public void appendTo(Element root, int index, int previous) {
+        Rupture rupture = ruptures.get(index);
+        String key = keys.get(index);
+        boolean newKey = previous == -1 || !key.equals(keys.get(previous));
+        if (newKey) {
+          addComment(key, root);
+        }
+        if (newKey || rupture.mag != ruptures.get(previous).mag) {
+          addComment(String.format(" M=%s ", Maths.round(rupture.mag, 3)), root);
+        }
+        rupture.appendTo(root, REF_CH);
+      }
+    };
+
+    RuptureShards.write(shardRuptures, dirOut, RUPTURES_XML_OUT, mode, count);
+  }
+
+  /* Rupture file root element, settings, and defaults. */
+  private static Element createRupturesRoot(
+      Document doc,
+      String name,
+      int id,
+      double weight,
+      String reference) {
+    return RuptureShards.createRoot(doc, name, weight, id, REF_CH,
+        DISCLAIMER,
+        " Reference: " + reference + " ");
+  }
+
   static final String DISCLAIMER = " This model is an example and for review purposes only ";
 
   static void addDisclaimer(Element e) {
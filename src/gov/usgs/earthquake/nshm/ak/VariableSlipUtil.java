@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static gov.usgs.earthquake.nshm.ak.AkData.*;
 
+import gov.usgs.earthquake.nshm.util.Utils;
 import gov.usgs.earthquake.nshmp.data.Data;
 import gov.usgs.earthquake.nshmp.data.XyPoint;
 import gov.usgs.earthquake.nshmp.data.XySequence;
@@ -14,19 +15,20 @@ import gov.usgs.earthquake.nshmp.internal.Parsing;
 import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
 import gov.usgs.earthquake.nshmp.mfd.Mfds;
 
-import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.primitives.Doubles;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  * Convert variable slip along strike of single fault to fault system source.
@@ -74,39 +76,44 @@ public class VariableSlipUtil {
   static final String[] grEpiStrings = { "mMax-epi", "mMax", "mMax+epi" };
   static final String[] chEpiStrings = { "m-epi", "m", "m+epi" };
 
+  /*
+   * Derived fault data are memoized, thread-safe suppliers so that each fault
+   * system only pays for the data it uses, and no work is done at class-load
+   * time. See buildAll() to compute all rupture sets concurrently.
+   */
   // @formatter:off
-  static final List<LocationList> DENALI_CENTER_TRACES = DENALI_CENTER_TRACE.partition(TARGET_SECTION_LENGTH);
-  static final List<LocationList> DENALI_EAST_TRACES = DENALI_EAST_TRACE.partition(TARGET_SECTION_LENGTH);
-  static final List<LocationList> TOTSCHUNDA_TRACES = TOTSCHUNDA_TRACE.partition(TARGET_SECTION_LENGTH);
-  static final List<LocationList> CASTLE_MTN_TRACES = CASTLE_MTN_TRACE.partition(TARGET_SECTION_LENGTH);
+  static final Supplier<List<LocationList>> DENALI_CENTER_TRACES = Suppliers.memoize(() -> DENALI_CENTER_TRACE.partition(TARGET_SECTION_LENGTH));
+  static final Supplier<List<LocationList>> DENALI_EAST_TRACES = Suppliers.memoize(() -> DENALI_EAST_TRACE.partition(TARGET_SECTION_LENGTH));
+  static final Supplier<List<LocationList>> TOTSCHUNDA_TRACES = Suppliers.memoize(() -> TOTSCHUNDA_TRACE.partition(TARGET_SECTION_LENGTH));
+  static final Supplier<List<LocationList>> CASTLE_MTN_TRACES = Suppliers.memoize(() -> CASTLE_MTN_TRACE.partition(TARGET_SECTION_LENGTH));
   
-  static final List<Double> DENALI_CENTER_EAST_SLIP_RATES = computeSectionSlip(DENALI_CENTER_TRACE, DENALI_CENTER_TRACES, DENALI_CENTER_EAST_SLIP);
-  static final List<Double> DENALI_CENTER_TOTSCHUNDA_SLIP_RATES = computeSectionSlip(DENALI_CENTER_TRACE, DENALI_CENTER_TRACES, DENALI_CENTER_TOTSCHUNDA_SLIP);
-  static final List<Double> DENALI_EAST_SLIP_RATES = computeSectionSlip(DENALI_EAST_TRACE, DENALI_EAST_TRACES, DENALI_EAST_SLIP);
-  static final List<Double> TOTSCHUNDA_SLIP_RATES = computeSectionSlip(TOTSCHUNDA_TRACE, TOTSCHUNDA_TRACES, TOTSCHUNDA_SLIP);
-  static final List<Double> CASTLE_MTN_SLIP_RATES = computeSectionSlip(CASTLE_MTN_TRACE, CASTLE_MTN_TRACES, CASTLE_MTN_SLIP);
-      
-  static final List<FaultSection> DENALI_CENTER_EAST_SECTIONS = denaliCenterEastSections();
-  static final List<FaultSection> DENALI_CENTER_TOTSCHUNDA_SECTIONS = denaliCenterTotschundaSections();
-  static final List<FaultSection> DENALI_TOTSCHUNDA_SECTIONS = denaliTotschundaSections();
-  static final List<FaultSection> CASTLE_MTN_SECTIONS = castleMountainSections();
+  static final Supplier<List<Double>> DENALI_CENTER_EAST_SLIP_RATES = Suppliers.memoize(() -> computeSectionSlip(DENALI_CENTER_TRACE, DENALI_CENTER_TRACES.get(), DENALI_CENTER_EAST_SLIP));
+  static final Supplier<List<Double>> DENALI_CENTER_TOTSCHUNDA_SLIP_RATES = Suppliers.memoize(() -> computeSectionSlip(DENALI_CENTER_TRACE, DENALI_CENTER_TRACES.get(), DENALI_CENTER_TOTSCHUNDA_SLIP));
+  static final Supplier<List<Double>> DENALI_EAST_SLIP_RATES = Suppliers.memoize(() -> computeSectionSlip(DENALI_EAST_TRACE, DENALI_EAST_TRACES.get(), DENALI_EAST_SLIP));
+  static final Supplier<List<Double>> TOTSCHUNDA_SLIP_RATES = Suppliers.memoize(() -> computeSectionSlip(TOTSCHUNDA_TRACE, TOTSCHUNDA_TRACES.get(), TOTSCHUNDA_SLIP));
+  static final Supplier<List<Double>> CASTLE_MTN_SLIP_RATES = Suppliers.memoize(() -> computeSectionSlip(CASTLE_MTN_TRACE, CASTLE_MTN_TRACES.get(), CASTLE_MTN_SLIP));
   
-  static final double DENALI_CENTER_EAST_MO_RATE = momentRate(DENALI_CENTER_EAST_SECTIONS);
-  static final double DENALI_CENTER_TOTSCHUNDA_MO_RATE = momentRate(DENALI_CENTER_TOTSCHUNDA_SECTIONS);
-  static final double CASTLE_MTN_MO_RATE = momentRate(CASTLE_MTN_SECTIONS);
-
-  static final Map<String, IncrementalMfd> DENALI_CENTER_EAST_GR_MFDS = denaliCenterEastGrMfds();
-  static final Map<String, IncrementalMfd> DENALI_CENTER_TOTSCHUNDA_GR_MFDS = denaliCenterTotschundaGrMfds();
-  static final Map<String, IncrementalMfd> CASTLE_MTN_GR_MFDS = castleMountainGrMfds();
+  static final Supplier<List<FaultSection>> DENALI_CENTER_EAST_SECTIONS = Suppliers.memoize(VariableSlipUtil::denaliCenterEastSections);
+  static final Supplier<List<FaultSection>> DENALI_CENTER_TOTSCHUNDA_SECTIONS = Suppliers.memoize(VariableSlipUtil::denaliCenterTotschundaSections);
+  static final Supplier<List<FaultSection>> DENALI_TOTSCHUNDA_SECTIONS = Suppliers.memoize(VariableSlipUtil::denaliTotschundaSections);
+  static final Supplier<List<FaultSection>> CASTLE_MTN_SECTIONS = Suppliers.memoize(VariableSlipUtil::castleMountainSections);
+  
+  static final Supplier<Double> DENALI_CENTER_EAST_MO_RATE = Suppliers.memoize(() -> momentRate(DENALI_CENTER_EAST_SECTIONS.get()));
+  static final Supplier<Double> DENALI_CENTER_TOTSCHUNDA_MO_RATE = Suppliers.memoize(() -> momentRate(DENALI_CENTER_TOTSCHUNDA_SECTIONS.get()));
+  static final Supplier<Double> CASTLE_MTN_MO_RATE = Suppliers.memoize(() -> momentRate(CASTLE_MTN_SECTIONS.get()));
   
-  static final Map<String, IncrementalMfd> DENALI_CENTER_EAST_CH_MFDS = denaliCenterEastChMfds();
-  static final Map<String, IncrementalMfd> DENALI_CENTER_TOTSCHUNDA_CH_MFDS = denaliCenterTotschundaChMfds();
-  static final Map<String, IncrementalMfd> CASTLE_MTN_CH_MFDS = castleMountainChMfds();
+  static final Supplier<Map<String, IncrementalMfd>> DENALI_CENTER_EAST_GR_MFDS = Suppliers.memoize(VariableSlipUtil::denaliCenterEastGrMfds);
+  static final Supplier<Map<String, IncrementalMfd>> DENALI_CENTER_TOTSCHUNDA_GR_MFDS = Suppliers.memoize(VariableSlipUtil::denaliCenterTotschundaGrMfds);
+  static final Supplier<Map<String, IncrementalMfd>> CASTLE_MTN_GR_MFDS = Suppliers.memoize(VariableSlipUtil::castleMountainGrMfds);
   
-  static final Map<String, List<Rupture>> DENALI_CENTER_EAST_RUPTURES = denaliCenterEastRuptures();
-  static final Map<String, List<Rupture>> DENALI_CENTER_TOTSCHUNDA_RUPTURES = denaliCenterTotschundaRuptures();
-  static final Map<String, List<Rupture>> DENALI_TOTSCHUNDA_RUPTURES = denaliTotschundaRuptures();
-  static final Map<String, List<Rupture>> CASTLE_MTN_RUPTURES = castleMountainRuptures();
+  static final Supplier<Map<String, IncrementalMfd>> DENALI_CENTER_EAST_CH_MFDS = Suppliers.memoize(VariableSlipUtil::denaliCenterEastChMfds);
+  static final Supplier<Map<String, IncrementalMfd>> DENALI_CENTER_TOTSCHUNDA_CH_MFDS = Suppliers.memoize(VariableSlipUtil::denaliCenterTotschundaChMfds);
+  static final Supplier<Map<String, IncrementalMfd>> CASTLE_MTN_CH_MFDS = Suppliers.memoize(VariableSlipUtil::castleMountainChMfds);
+  
+  static final Supplier<Map<String, List<Rupture>>> DENALI_CENTER_EAST_RUPTURES = Suppliers.memoize(VariableSlipUtil::denaliCenterEastRuptures);
+  static final Supplier<Map<String, List<Rupture>>> DENALI_CENTER_TOTSCHUNDA_RUPTURES = Suppliers.memoize(VariableSlipUtil::denaliCenterTotschundaRuptures);
+  static final Supplier<Map<String, List<Rupture>>> DENALI_TOTSCHUNDA_RUPTURES = Suppliers.memoize(VariableSlipUtil::denaliTotschundaRuptures);
+  static final Supplier<Map<String, List<Rupture>>> CASTLE_MTN_RUPTURES = Suppliers.memoize(VariableSlipUtil::castleMountainRuptures);
   // @formatter:on
 
   @SuppressWarnings("javadoc")
@@ -115,24 +122,41 @@ public class VariableSlipUtil {
     reviewMfds();
   }
 
+  /*
+   * Computes all rupture sets concurrently. Shared dependencies (e.g. the
+   * Denali center sections) are computed once by whichever task requests them
+   * first; the others block until they are available.
+   */
+  static void buildAll() throws IOException {
+    List<Callable<Object>> tasks = new ArrayList<>();
+    for (Supplier<?> supplier : ImmutableList.of(
+        CASTLE_MTN_RUPTURES,
+        DENALI_CENTER_EAST_RUPTURES,
+        DENALI_CENTER_TOTSCHUNDA_RUPTURES,
+        DENALI_TOTSCHUNDA_RUPTURES)) {
+      tasks.add(supplier::get);
+    }
+    Utils.invokeAll(tasks);
+  }
+
   static void reviewSections() {
     // @formatter:off
-    sectionReview("Denali Center + East", DENALI_CENTER_TRACE, DENALI_CENTER_TRACES, DENALI_CENTER_EAST_SLIP_RATES);
-    sectionReview("Denali Center + Totschunda", DENALI_CENTER_TRACE, DENALI_CENTER_TRACES, DENALI_CENTER_TOTSCHUNDA_SLIP_RATES);
-    sectionReview("Denali East", DENALI_EAST_TRACE, DENALI_EAST_TRACES, DENALI_EAST_SLIP_RATES);
-    sectionReview("Totschunda", TOTSCHUNDA_TRACE, TOTSCHUNDA_TRACES, TOTSCHUNDA_SLIP_RATES);
-    sectionReview("Castle Mountain", CASTLE_MTN_TRACE, CASTLE_MTN_TRACES, CASTLE_MTN_SLIP_RATES);
+    sectionReview("Denali Center + East", DENALI_CENTER_TRACE, DENALI_CENTER_TRACES.get(), DENALI_CENTER_EAST_SLIP_RATES.get());
+    sectionReview("Denali Center + Totschunda", DENALI_CENTER_TRACE, DENALI_CENTER_TRACES.get(), DENALI_CENTER_TOTSCHUNDA_SLIP_RATES.get());
+    sectionReview("Denali East", DENALI_EAST_TRACE, DENALI_EAST_TRACES.get(), DENALI_EAST_SLIP_RATES.get());
+    sectionReview("Totschunda", TOTSCHUNDA_TRACE, TOTSCHUNDA_TRACES.get(), TOTSCHUNDA_SLIP_RATES.get());
+    sectionReview("Castle Mountain", CASTLE_MTN_TRACE, CASTLE_MTN_TRACES.get(), CASTLE_MTN_SLIP_RATES.get());
     // @formatter:on
   }
 
   static void reviewMfds() {
     // @formatter:off
-    mfdReview("Denali-Denali GR", DENALI_CENTER_EAST_MO_RATE, DENALI_CENTER_EAST_GR_MFDS);
-    mfdReview("Denali-Denali CH", DENALI_CENTER_EAST_MO_RATE, DENALI_CENTER_EAST_CH_MFDS);
-    mfdReview("Denali-Totschunda GR", DENALI_CENTER_TOTSCHUNDA_MO_RATE, DENALI_CENTER_TOTSCHUNDA_GR_MFDS);
-    mfdReview("Denali-Totschunda CH", DENALI_CENTER_TOTSCHUNDA_MO_RATE, DENALI_CENTER_TOTSCHUNDA_CH_MFDS);
-    mfdReview("Castle Mountain GR", CASTLE_MTN_MO_RATE, CASTLE_MTN_GR_MFDS);
-    mfdReview("Castle Mountain CH", CASTLE_MTN_MO_RATE, CASTLE_MTN_CH_MFDS);
+    mfdReview("Denali-Denali GR", DENALI_CENTER_EAST_MO_RATE.get(), DENALI_CENTER_EAST_GR_MFDS.get());
+    mfdReview("Denali-Denali CH", DENALI_CENTER_EAST_MO_RATE.get(), DENALI_CENTER_EAST_CH_MFDS.get());
+    mfdReview("Denali-Totschunda GR", DENALI_CENTER_TOTSCHUNDA_MO_RATE.get(), DENALI_CENTER_TOTSCHUNDA_GR_MFDS.get());
+    mfdReview("Denali-Totschunda CH", DENALI_CENTER_TOTSCHUNDA_MO_RATE.get(), DENALI_CENTER_TOTSCHUNDA_CH_MFDS.get());
+    mfdReview("Castle Mountain GR", CASTLE_MTN_MO_RATE.get(), CASTLE_MTN_GR_MFDS.get());
+    mfdReview("Castle Mountain CH", CASTLE_MTN_MO_RATE.get(), CASTLE_MTN_CH_MFDS.get());
     // @formatter:on
   }
 
@@ -207,8 +231,8 @@ public class VariableSlipUtil {
     List<FaultSection> sectionsDc = createSections(
         0,
         "Denali Center",
-        DENALI_CENTER_TRACES,
-        DENALI_CENTER_EAST_SLIP_RATES,
+        DENALI_CENTER_TRACES.get(),
+        DENALI_CENTER_EAST_SLIP_RATES.get(),
         AK_DEPTH,
         DENALI_CENTER_LOWER_DEPTH,
         DENALI_CENTER_DIP,
@@ -219,8 +243,8 @@ public class VariableSlipUtil {
     List<FaultSection> sectionsDe = createSections(
         sectionsDc.size(),
         "Denali East",
-        DENALI_EAST_TRACES,
-        DENALI_EAST_SLIP_RATES,
+        DENALI_EAST_TRACES.get(),
+        DENALI_EAST_SLIP_RATES.get(),
         AK_DEPTH,
         DENALI_EAST_LOWER_DEPTH,
         DENALI_EAST_DIP,
@@ -239,8 +263,8 @@ public class VariableSlipUtil {
     List<FaultSection> sectionsDc = createSections(
         0,
         "Denali Center",
-        DENALI_CENTER_TRACES,
-        DENALI_CENTER_TOTSCHUNDA_SLIP_RATES,
+        DENALI_CENTER_TRACES.get(),
+        DENALI_CENTER_TOTSCHUNDA_SLIP_RATES.get(),
         AK_DEPTH,
         DENALI_CENTER_LOWER_DEPTH,
         DENALI_CENTER_DIP,
@@ -249,10 +273,10 @@ public class VariableSlipUtil {
         AK_ASEIS);
 
     List<FaultSection> sectionsDt = createSections(
-        sectionsDc.size() + DENALI_EAST_TRACES.size(),
+        sectionsDc.size() + DENALI_EAST_TRACES.get().size(),
         "Totschunda",
-        TOTSCHUNDA_TRACES,
-        TOTSCHUNDA_SLIP_RATES,
+        TOTSCHUNDA_TRACES.get(),
+        TOTSCHUNDA_SLIP_RATES.get(),
         AK_DEPTH,
         TOTSCHUNDA_LOWER_DEPTH,
         TOTSCHUNDA_DIP,
@@ -271,8 +295,8 @@ public class VariableSlipUtil {
     List<FaultSection> sectionsDc = createSections(
         0,
         "Denali Center",
-        DENALI_CENTER_TRACES,
-        DENALI_CENTER_EAST_SLIP_RATES,
+        DENALI_CENTER_TRACES.get(),
+        DENALI_CENTER_EAST_SLIP_RATES.get(),
         AK_DEPTH,
         DENALI_CENTER_LOWER_DEPTH,
         DENALI_CENTER_DIP,
@@ -283,8 +307,8 @@ public class VariableSlipUtil {
     List<FaultSection> sectionsDe = createSections(
         sectionsDc.size(),
         "Denali East",
-        DENALI_EAST_TRACES,
-        DENALI_EAST_SLIP_RATES,
+        DENALI_EAST_TRACES.get(),
+        DENALI_EAST_SLIP_RATES.get(),
         AK_DEPTH,
         DENALI_EAST_LOWER_DEPTH,
         DENALI_EAST_DIP,
@@ -295,8 +319,8 @@ public class VariableSlipUtil {
     List<FaultSection> sectionsDt = createSections(
         sectionsDc.size() + sectionsDe.size(),
         "Totschunda",
-        TOTSCHUNDA_TRACES,
-        TOTSCHUNDA_SLIP_RATES,
+        TOTSCHUNDA_TRACES.get(),
+        TOTSCHUNDA_SLIP_RATES.get(),
         AK_DEPTH,
         TOTSCHUNDA_LOWER_DEPTH,
         TOTSCHUNDA_DIP,
@@ -316,8 +340,8 @@ public class VariableSlipUtil {
     return createSections(
         0,
         "Castle Mountain",
-        CASTLE_MTN_TRACES,
-        CASTLE_MTN_SLIP_RATES,
+        CASTLE_MTN_TRACES.get(),
+        CASTLE_MTN_SLIP_RATES.get(),
         AK_DEPTH,
         CASTLE_MTN_LOWER_DEPTH,
         CASTLE_MTN_DIP,
@@ -424,6 +448,8 @@ public class VariableSlipUtil {
       List<FaultSection> ruptureSections = sections.subList(i, i + n);
       slipRates.add(avgSlipRate(ruptureSections));
       rupture.indices = Parsing.intListToRangeString(Rupture.toIndices(ruptureSections));
+      rupture.firstIndex = ruptureSections.get(0).index;
+      rupture.lastIndex = ruptureSections.get(n - 1).index;
       rupture.mag = m;
       rupture.depth = depth;
       rupture.dip = dip;
@@ -470,16 +496,16 @@ public class VariableSlipUtil {
     ImmutableMap.Builder<String, List<Rupture>> ruptures = ImmutableMap.builder();
 
     Map<String, List<Rupture>> grRuptures = createRuptureLists(
-        DENALI_CENTER_EAST_GR_MFDS,
-        DENALI_CENTER_EAST_SECTIONS,
+        DENALI_CENTER_EAST_GR_MFDS.get(),
+        DENALI_CENTER_EAST_SECTIONS.get(),
         DENALI_DIP,
         AK_DEPTH,
         DENALI_WIDTH,
         AK_RAKE);
 
     Map<String, List<Rupture>> chRuptures = createRuptureLists(
-        DENALI_CENTER_EAST_CH_MFDS,
-        DENALI_CENTER_EAST_SECTIONS,
+        DENALI_CENTER_EAST_CH_MFDS.get(),
+        DENALI_CENTER_EAST_SECTIONS.get(),
         DENALI_DIP,
         AK_DEPTH,
         DENALI_WIDTH,
@@ -496,16 +522,16 @@ public class VariableSlipUtil {
     ImmutableMap.Builder<String, List<Rupture>> ruptures = ImmutableMap.builder();
 
     Map<String, List<Rupture>> grRuptures = createRuptureLists(
-        DENALI_CENTER_TOTSCHUNDA_GR_MFDS,
-        DENALI_CENTER_TOTSCHUNDA_SECTIONS,
+        DENALI_CENTER_TOTSCHUNDA_GR_MFDS.get(),
+        DENALI_CENTER_TOTSCHUNDA_SECTIONS.get(),
         DENALI_DIP,
         AK_DEPTH,
         DENALI_WIDTH,
         AK_RAKE);
 
     Map<String, List<Rupture>> chRuptures = createRuptureLists(
-        DENALI_CENTER_TOTSCHUNDA_CH_MFDS,
-        DENALI_CENTER_TOTSCHUNDA_SECTIONS,
+        DENALI_CENTER_TOTSCHUNDA_CH_MFDS.get(),
+        DENALI_CENTER_TOTSCHUNDA_SECTIONS.get(),
         DENALI_DIP,
         AK_DEPTH,
         DENALI_WIDTH,
@@ -522,60 +548,29 @@ public class VariableSlipUtil {
      * Ensure that identical MFDs were used to for denali-center-east and
      * denali-center-totschunda.
      */
-    checkState(DENALI_CENTER_EAST_RUPTURES.size() == DENALI_CENTER_TOTSCHUNDA_RUPTURES.size());
+    Map<String, List<Rupture>> centerEast = DENALI_CENTER_EAST_RUPTURES.get();
+    Map<String, List<Rupture>> centerTotschunda = DENALI_CENTER_TOTSCHUNDA_RUPTURES.get();
+    checkState(centerEast.size() == centerTotschunda.size());
 
     /*
-     * For each magnitude rupture list, create a copy of denali center-east
-     * ruptures (many of these rate will be modified) and then create a map from
-     * the copy with k:indices string to v:rupture. Create a linked list of
-     * center-totschunda ruptures. Loop center-totschunda ruptures. If
-     * center-east map contains indices key, add center-totschunda rate to
-     * center-east rate and remove center-totschunda rupture from list. Create a
-     * new list and all map values. Add remaining ruptures in center-totschunda
-     * list to new list.
+     * For each MFD branch rupture list, merge denali center-east and
+     * center-totschunda ruptures in a single pass. Ruptures spanning the same
+     * sections (i.e. those on Denali center) have their rates summed; see
+     * RuptureMerger. The combined list contains all center-east ruptures
+     * followed by the remaining center-totschunda ruptures.
      */
     ImmutableMap.Builder<String, List<Rupture>> ruptures = ImmutableMap.builder();
-    for (String mfdKey : DENALI_CENTER_EAST_RUPTURES.keySet()) {
+    for (String mfdKey : centerEast.keySet()) {
       List<Rupture> combined = combineRuptures(
-          DENALI_CENTER_EAST_RUPTURES.get(mfdKey),
-          DENALI_CENTER_TOTSCHUNDA_RUPTURES.get(mfdKey));
+          centerEast.get(mfdKey),
+          centerTotschunda.get(mfdKey));
       ruptures.put(mfdKey, combined);
     }
     return ruptures.build();
   }
 
   private static List<Rupture> combineRuptures(List<Rupture> a, List<Rupture> b) {
-
-    /* create indices to rupture map with rupture copies */
-    Map<String, Rupture> aMap = FluentIterable
-        .from(a)
-        .transform(new Function<Rupture, Rupture>() {
-          @Override
-          public Rupture apply(Rupture rupture) {
-            return rupture.copy();
-          }
-        })
-        .uniqueIndex(new Function<Rupture, String>() {
-          @Override
-          public String apply(Rupture rupture) {
-            return rupture.indices;
-          }
-        });
-    List<Rupture> bList = new LinkedList<>(b);
-    Iterator<Rupture> bIter = bList.iterator();
-
-    while (bIter.hasNext()) {
-      Rupture bRup = bIter.next();
-      Rupture aRup = aMap.get(bRup.indices);
-      if (aRup != null) {
-        aRup.rate += bRup.rate;
-        bIter.remove();
-      }
-    }
-    return ImmutableList.<Rupture> builder()
-        .addAll(aMap.values())
-        .addAll(bList)
-        .build();
+    return RuptureMerger.merge(ImmutableList.of(a, b));
   }
 
   private static Map<String, List<Rupture>> castleMountainRuptures() {
@@ -583,16 +578,16 @@ public class VariableSlipUtil {
     ImmutableMap.Builder<String, List<Rupture>> ruptures = ImmutableMap.builder();
 
     Map<String, List<Rupture>> grRuptures = createRuptureLists(
-        CASTLE_MTN_GR_MFDS,
-        CASTLE_MTN_SECTIONS,
+        CASTLE_MTN_GR_MFDS.get(),
+        CASTLE_MTN_SECTIONS.get(),
         CASTLE_MTN_DIP,
         AK_DEPTH,
         CASTLE_MTN_WIDTH,
         AK_RAKE);
 
     Map<String, List<Rupture>> chRuptures = createRuptureLists(
-        CASTLE_MTN_CH_MFDS,
-        CASTLE_MTN_SECTIONS,
+        CASTLE_MTN_CH_MFDS.get(),
+        CASTLE_MTN_SECTIONS.get(),
         CASTLE_MTN_DIP,
         AK_DEPTH,
         CASTLE_MTN_WIDTH,
@@ -733,7 +728,7 @@ public class VariableSlipUtil {
         AK_M_DELTA,
         AK_B_VALUE,
         AK_GR_WEIGHT,
-        DENALI_CENTER_EAST_MO_RATE,
+        DENALI_CENTER_EAST_MO_RATE.get(),
         AK_M_UNCERTAINTY);
   }
 
@@ -744,7 +739,7 @@ public class VariableSlipUtil {
         AK_M_DELTA,
         AK_B_VALUE,
         AK_GR_WEIGHT,
-        DENALI_CENTER_TOTSCHUNDA_MO_RATE,
+        DENALI_CENTER_TOTSCHUNDA_MO_RATE.get(),
         AK_M_UNCERTAINTY);
   }
 
@@ -755,7 +750,7 @@ public class VariableSlipUtil {
         AK_M_DELTA,
         AK_B_VALUE,
         AK_GR_WEIGHT,
-        CASTLE_MTN_MO_RATE,
+        CASTLE_MTN_MO_RATE.get(),
         AK_M_UNCERTAINTY);
   }
 
@@ -785,7 +780,7 @@ public class VariableSlipUtil {
     return chMfds(
         DENALI_CENTER_EAST_CH_M_MAX,
         AK_CH_WEIGHT,
-        DENALI_CENTER_EAST_MO_RATE,
+        DENALI_CENTER_EAST_MO_RATE.get(),
         AK_M_UNCERTAINTY);
   }
 
@@ -793,7 +788,7 @@ public class VariableSlipUtil {
     return chMfds(
         DENALI_CENTER_TOTSCHUNDA_CH_M_MAX,
         AK_CH_WEIGHT,
-        DENALI_CENTER_TOTSCHUNDA_MO_RATE,
+        DENALI_CENTER_TOTSCHUNDA_MO_RATE.get(),
         AK_M_UNCERTAINTY);
   }
 
@@ -801,7 +796,7 @@ public class VariableSlipUtil {
     return chMfds(
         CASTLE_MTN_CH_M,
         AK_CH_WEIGHT,
-        CASTLE_MTN_MO_RATE,
+        CASTLE_MTN_MO_RATE.get(),
         AK_M_UNCERTAINTY);
   }
 
@@ -0,0 +1,185 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.primitives.Doubles;
+
+import gov.usgs.earthquake.nshmp.internal.Parsing;
+import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
+import gov.usgs.earthquake.nshmp.mfd.Mfds;
+
+/*
+ * Columnar incremental MFDs for the large 2008 CEUS (2007all8) grids. Each
+ * node with a positive a-value is classified as craton, margin, or other.
+ * Nodes are then grouped into mMax branches keyed by (b, cutoff mMax). Each
+ * branch gets one moment-balanced GR MFD, zeroed above the cutoff, and its
+ * rate row is reused by every node of the branch. Nodes that share a branch,
+ * class, and a-value share a bucket. The rates of all buckets are computed
+ * in one pass over a flat primitive buffer, and each bucket is formatted
+ * once.
+ *
+ * The rates are identical to building a GR MFD per node, scaling it to the
+ * incremental rate of its a-value, zeroing it above the cutoff, and applying
+ * the craton or margin weights.
+ *
+ * @author Peter Powers
+ */
+final class CeusMfdTable {
+
+  private static final byte OTHER = 0;
+  private static final byte CRATON = 1;
+  private static final byte MARGIN = 2;
+
+  /* Grid indices of nodes with a positive a-value, in grid order. */
+  final int[] nodes;
+
+  private final int[] nodeBuckets;
+  private final String[] bucketRates;
+
+  private CeusMfdTable(int[] nodes, int[] nodeBuckets, String[] bucketRates) {
+    this.nodes = nodes;
+    this.nodeBuckets = nodeBuckets;
+    this.bucketRates = bucketRates;
+  }
+
+  /* Formatted rates of the node at the supplied position in nodes. */
+  String rates(int position) {
+    return bucketRates[nodeBuckets[position]];
+  }
+
+  /*
+   * Create a table. If a node's mMax is not positive, its cutoff is
+   * gridMax + dMag/2. Otherwise the cutoff is the node's mMax. Every node MFD
+   * spans mMin to mfdMax.
+   */
+  static CeusMfdTable create(
+      double[] aDat,
+      double[] bDat,
+      double[] mMaxDat,
+      boolean[] cratonFlags,
+      boolean[] marginFlags,
+      double[] cratonWeights,
+      double[] marginWeights,
+      double mMin,
+      double gridMax,
+      double dMag,
+      double mfdMax) {
+
+    // classify nodes and assign branches
+    int size = 0;
+    for (double aVal : aDat) {
+      if (aVal > 0.0) size++;
+    }
+    int[] nodes = new int[size];
+    byte[] classes = new byte[size];
+    int[] nodeBranches = new int[size];
+    Map<Key, Integer> branchIds = new HashMap<>();
+    List<Branch> branches = new ArrayList<>();
+    for (int i = 0, k = 0; i < aDat.length; i++) {
+      if (aDat[i] <= 0.0) continue;
+      nodes[k] = i;
+      classes[k] = cratonFlags[i] ? CRATON : marginFlags[i] ? MARGIN : OTHER;
+      double cutoffMax = mMaxDat[i] <= 0 ? gridMax + dMag / 2. : mMaxDat[i];
+      Key key = new Key(bDat[i], cutoffMax);
+      Integer id = branchIds.get(key);
+      if (id == null) {
+        id = branches.size();
+        branchIds.put(key, id);
+        branches.add(new Branch(bDat[i], mMin, mfdMax, dMag, cutoffMax));
+      }
+      nodeBranches[k] = id;
+      k++;
+    }
+
+    // group nodes into (branch, class, a-value) buckets
+    int[] nodeBuckets = new int[size];
+    Map<Key, Integer> bucketIds = new HashMap<>();
+    int[] bucketNodes = new int[size];
+    int bucketCount = 0;
+    for (int k = 0; k < size; k++) {
+      Key key = new Key(nodeBranches[k] * 3 + classes[k], aDat[nodes[k]]);
+      Integer id = bucketIds.get(key);
+      if (id == null) {
+        id = bucketCount++;
+        bucketIds.put(key, id);
+        bucketNodes[id] = k;
+      }
+      nodeBuckets[k] = id;
+    }
+
+    // bulk rates
+    int nMag = GR_Data.create(0.0, 0.0, mMin, mfdMax, dMag, 1.0).nMag;
+    double[] rates = new double[bucketCount * nMag];
+    for (int j = 0; j < bucketCount; j++) {
+      int k = bucketNodes[j];
+      int i = nodes[k];
+      Branch branch = branches.get(nodeBranches[k]);
+      double[] weights = (classes[k] == CRATON) ? cratonWeights
+          : (classes[k] == MARGIN) ? marginWeights : null;
+      double scale = Mfds.incrRate(aDat[i], branch.bVal, mMin) / branch.y0;
+      int offset = j * nMag;
+      for (int m = 0; m < nMag; m++) {
+        double rate = branch.rates[m] * scale;
+        if (weights != null && weights[m] != 1.0) rate *= weights[m];
+        rates[offset + m] = rate;
+      }
+    }
+
+    String[] bucketRates = new String[bucketCount];
+    for (int j = 0; j < bucketCount; j++) {
+      int offset = j * nMag;
+      bucketRates[j] = Parsing.toString(
+          Doubles.asList(rates).subList(offset, offset + nMag), "%.8g");
+    }
+    return new CeusMfdTable(nodes, nodeBuckets, bucketRates);
+  }
+
+  /*
+   * Unit a-value GR rates for an mMax branch, zeroed above the cutoff. The
+   * rate of the first bin is kept before zeroing. Scaling to a node's
+   * incremental rate divides by that rate.
+   */
+  private static final class Branch {
+
+    final double bVal;
+    final double y0;
+    final double[] rates;
+
+    Branch(double bVal, double mMin, double mfdMax, double dMag, double cutoffMax) {
+      this.bVal = bVal;
+      GR_Data grNode = GR_Data.create(0.0, bVal, mMin, mfdMax, dMag, 1.0);
+      IncrementalMfd grMfd = Mfds.newGutenbergRichterMoBalancedMFD(
+          grNode.mMin, grNode.dMag, grNode.nMag, grNode.bVal, 1.0);
+      y0 = grMfd.getY(0);
+      if (cutoffMax < mfdMax) grMfd.zeroAboveMag2(cutoffMax);
+      rates = Doubles.toArray(grMfd.yValues());
+    }
+  }
+
+  private static final class Key {
+
+    private final double v1;
+    private final double v2;
+
+    Key(double v1, double v2) {
+      this.v1 = v1;
+      this.v2 = v2;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return Double.compare(v1, other.v1) == 0 && Double.compare(v2, other.v2) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Double.hashCode(v1) + Double.hashCode(v2);
+    }
+  }
+
+}
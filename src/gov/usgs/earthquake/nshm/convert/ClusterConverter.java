@@ -5,9 +5,7 @@ import static gov.usgs.earthquake.nshmp.eq.fault.surface.RuptureScaling.NSHM_FAU
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addComment;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToDoubleList;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.stripComment;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DEPTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DIP;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ID;
@@ -25,6 +23,7 @@ import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE_PROPERTIES;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.TRACE;
 
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
 import gov.usgs.earthquake.nshm.util.MFD_Type;
 import gov.usgs.earthquake.nshm.util.SourceRegion;
 import gov.usgs.earthquake.nshm.util.Utils;
@@ -62,7 +61,6 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Files;
-import com.google.common.primitives.Doubles;
 
 /*
  * Convert NSHMP cluster input files to XML.
@@ -117,9 +115,12 @@ class ClusterConverter {
         // For NMSZ NSHMP uses a group id to identify fault variants, in
         // this case 5 arrayed west to east, and a segment or section id
         // to identify north, central and southern cluster model faults
-        int groupNum = Parsing.readInt(fltDat, 3);
-        int sectionNum = Parsing.readInt(fltDat, 4);
-        String sectionName = Parsing.splitToList(fltDat, Delimiter.SPACE).get(5);
+        LineTokenizer fltInfo = LineTokenizer.of(fltDat).skip(1);
+        int focalMechId = fltInfo.nextInt();
+        int nMag = fltInfo.nextInt();
+        int groupNum = fltInfo.nextInt();
+        int sectionNum = fltInfo.nextInt();
+        String sectionName = fltInfo.next();
 
         // collect data on source name line
         ClusterData cd = srcMap.get(groupNum);
@@ -135,8 +136,8 @@ class ClusterConverter {
         cd.sources.add(sd);
         sd.name = createSectionName(sf.name, sectionNum, sectionName);
         sd.id = -1;
-        sd.focalMech = Utils.typeForID(Parsing.readInt(fltDat, 1));
-        sd.nMag = Parsing.readInt(fltDat, 2);
+        sd.focalMech = Utils.typeForID(focalMechId);
+        sd.nMag = nMag;
         sd.mfds = Lists.newArrayList();
 
         List<String> mfdSrcDat = Parsing.toLineList(lines, sd.nMag);
@@ -188,16 +189,16 @@ class ClusterConverter {
   private MagUncertainty readMagUncertainty(List<String> src) {
 
     // epistemic
-    double[] epiDeltas = Doubles.toArray(splitToDoubleList(src.get(1), SPACE));
-    double[] epiWeights = Doubles.toArray(splitToDoubleList(src.get(2), SPACE));
+    double[] epiDeltas = LineTokenizer.of(src.get(1)).toDoubleArray();
+    double[] epiWeights = LineTokenizer.of(src.get(2)).toDoubleArray();
     double epiCutoff = 6.5;
 
     // aleatory
-    List<Double> aleatoryMagDat = splitToDoubleList(stripComment(src.get(3), '!'), SPACE);
-    double aleatorySigmaTmp = aleatoryMagDat.get(0);
+    LineTokenizer aleatoryMagDat = LineTokenizer.of(stripComment(src.get(3), '!'));
+    double aleatorySigmaTmp = aleatoryMagDat.nextDouble();
     boolean moBalance = aleatorySigmaTmp > 0.0;
     double aleaSigma = Math.abs(aleatorySigmaTmp);
-    int aleaCount = aleatoryMagDat.get(1).intValue() * 2 + 1;
+    int aleaCount = (int) aleatoryMagDat.nextDouble() * 2 + 1;
     double aleaCutoff = 6.5;
 
     return MagUncertainty.create(epiDeltas, epiWeights, epiCutoff, aleaSigma, aleaCount,
@@ -219,12 +220,14 @@ class ClusterConverter {
     // for 2008 NSHMP all cluster sources are entered as characteristic
     // and fill all the supplied geometries
     boolean floats = false;
+    LineTokenizer chDat = LineTokenizer.of("");
     for (String line : lines) {
-      double rate = Parsing.readDouble(line, 1);
+      chDat.reset(line);
+      double mag = chDat.nextDouble();
+      double rate = chDat.nextDouble();
       initRefCH(export, rate);
 
-      CH_Data ch = CH_Data.create(Parsing.readDouble(line, 0), rate,
-          Parsing.readDouble(line, 2), floats);
+      CH_Data ch = CH_Data.create(mag, rate, chDat.nextDouble(), floats);
       sd.mfds.add(ch);
       log(sd, MFD_Type.CH, floats);
 
@@ -239,12 +242,13 @@ class ClusterConverter {
   private void readTrace(Iterator<String> it, SourceData fd) {
     readFaultGeom(it.next(), fd);
 
-    int traceCount = Parsing.readInt(it.next(), 0);
+    int traceCount = LineTokenizer.of(it.next()).nextInt();
     List<String> traceDat = Parsing.toLineList(it, traceCount);
     List<Location> locs = Lists.newArrayList();
+    LineTokenizer latlon = LineTokenizer.of("");
     for (String ptDat : traceDat) {
-      List<Double> latlon = splitToDoubleList(ptDat, SPACE);
-      locs.add(Location.create(latlon.get(0), latlon.get(1), 0.0));
+      latlon.reset(ptDat);
+      locs.add(Location.create(latlon.nextDouble(), latlon.nextDouble(), 0.0));
     }
     fd.locs = LocationList.create(locs);
 
@@ -257,10 +261,10 @@ class ClusterConverter {
   }
 
   private static void readFaultGeom(String line, SourceData fd) {
-    List<Double> fltDat = splitToDoubleList(line, SPACE);
-    fd.dip = fltDat.get(0);
-    fd.width = fltDat.get(1);
-    fd.top = fltDat.get(2);
+    LineTokenizer fltDat = LineTokenizer.of(line);
+    fd.dip = fltDat.nextDouble();
+    fd.width = fltDat.nextDouble();
+    fd.top = fltDat.nextDouble();
   }
 
   private static void skipSiteData(Iterator<String> it) {
@@ -10,6 +10,8 @@ import gov.usgs.earthquake.nshmp.internal.Parsing;
 import gov.usgs.earthquake.nshm.util.SourceRegion;
 import gov.usgs.earthquake.nshm.util.Utils;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -40,6 +42,24 @@ class Converter {
 
   static FaultNames faultNames;
 
+  /*
+   * Set to collapse the 2014 WUS bird, geo, and zeng fault branches into single
+   * source files.
+   */
+  private static final boolean COLLAPSE_WUS_BRANCHES = false;
+
+  /*
+   * Set to combine fault files that share geometries into single source files
+   * (see ModelReducer).
+   */
+  private static final boolean REDUCE_FAULTS = false;
+
+  /*
+   * Node spacing (km) of subduction interface mesh sidecars; 0 disables mesh
+   * output.
+   */
+  private static final double SUB_MESH_SPACING = 0.0;
+
   public static void main(String[] args) {
     // convert2008();
 //    convert2014();
@@ -112,7 +132,11 @@ class Converter {
     Logger log = Utils.logger(logID, logPath, LEVEL);
 
     files = MGR_2014.get(WUS, FAULT);
-    convertFault(files, "2014", log);
+    if (COLLAPSE_WUS_BRANCHES) {
+      collapseFault2014(files, log);
+    } else {
+      convertFault(files, "2014", log);
+    }
     files = MGR_2014.get(WUS, GRID);
     convertGrid(files, "2014", log);
     files = MGR_2014.get(WUS, INTERFACE);
@@ -162,6 +186,10 @@ class Converter {
   }
 
   static void convertFault(List<SourceFile> files, String yr, Logger log) {
+    if (REDUCE_FAULTS) {
+      reduceFault(files, yr, log);
+      return;
+    }
     String out = FCAST_DIR + yr + S;
     FaultConverter converter = FaultConverter.create(log);
     for (SourceFile file : files) {
@@ -170,9 +198,27 @@ class Converter {
     }
   }
 
+  /*
+   * Combines fault files that share geometries; use in place of convertFault()
+   * for a reduced model.
+   */
+  static void reduceFault(List<SourceFile> files, String yr, Logger log) {
+    String out = FCAST_DIR + yr + S;
+    for (SourceFile file : files) {
+      checkArgument(file.type == FAULT, "Wrong file type: %s", file.type.name());
+    }
+    ModelReducer.create(log).reduce(files, out);
+  }
+
+  static void collapseFault2014(List<SourceFile> files, Logger log) {
+    String out = FCAST_DIR + "2014" + S;
+    Path diagnostics = Paths.get(LOG_DIR + "wus-branch-collapse-2014.csv");
+    ModelReducer.create(log).collapseBranches(files, out, diagnostics);
+  }
+
   static void convertInterface(List<SourceFile> files, String yr, Logger log) {
     String out = FCAST_DIR + yr + S;
-    SubductionConverter converter = SubductionConverter.create(log);
+    SubductionConverter converter = SubductionConverter.create(log, SUB_MESH_SPACING);
     for (SourceFile file : files) {
       checkArgument(file.type == INTERFACE, "Wrong file type: %s", file.type.name());
       converter.convert(file, out);
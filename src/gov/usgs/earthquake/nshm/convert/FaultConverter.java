@@ -6,13 +6,11 @@ import static com.google.common.base.StandardSystemProperty.LINE_SEPARATOR;
 import static gov.usgs.earthquake.nshm.util.SourceRegion.CEUS;
 import static gov.usgs.earthquake.nshmp.eq.fault.surface.RuptureScaling.NSHM_FAULT_CA_ELLB_WC94_AREA;
 import static gov.usgs.earthquake.nshmp.eq.fault.surface.RuptureScaling.NSHM_FAULT_WC94_LENGTH;
+import static gov.usgs.earthquake.nshmp.eq.model.SourceType.FAULT;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addComment;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToDoubleList;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToList;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.stripComment;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DEPTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DIP;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ID;
@@ -29,11 +27,13 @@ import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE_PROPERTIES;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.TRACE;
 
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
 import gov.usgs.earthquake.nshm.util.MFD_Type;
 import gov.usgs.earthquake.nshm.util.SourceRegion;
 import gov.usgs.earthquake.nshm.util.Utils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -63,16 +63,13 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import com.google.common.base.CharMatcher;
-import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
-import com.google.common.primitives.Doubles;
 
 /*
  * Convert NSHMP fault input files to XML.
@@ -94,143 +91,150 @@ class FaultConverter {
   void convert(SourceFile sf, String outDir) {
 
     try {
-      log.info("");
-      log.info("Source file: " + sf.name + " " + sf.region + " " + sf.weight);
-      Exporter export = new Exporter();
-      export.name = sf.name;
-      export.displayName = cleanFileName(export.name);
-      export.weight = sf.weight;
-      export.region = sf.region;
-
-      // mag scaling relationships are region dependent
-
-      // KLUDGY nameIdx indicates the array index at which a fault
-      // name begins; most NSHMP files define the fault name on a line
-      // such as:
-      //
-      // 2 3 1 1 805 Juniper Mountain fault
-      //
-      // where the starting index would be 4. (The identifying number is
-      // necessary to distinguish some faults, e.g. Seattle Fault in
-      // orwa_c.in)
-      // CA files generally start at idx=3; general WUS case is 4
-      //
-      // int nameIdx = (sf.region == CA || sf.region == CEUS) ? 3 :
-      // now test CA by name as region has been moved to WUS
-      int nameIdx = (isCA(sf.name) || sf.region == CEUS)
-          ? 3 : (sf.name.equals("wasatch.3dip.74.in")) ? 4 : 5;
-
-      Iterator<String> lines = sf.lineIterator();
-
-      // skip irrelevant header data
-      skipSiteData(lines);
-      lines.next(); // rMax and discretization
-      skipGMMs(lines);
-      lines.next(); // distance sampling on fault and dMove
-
-      // load magnitude uncertainty data
-      List<String> uncLines = Parsing.toLineList(lines, 4);
-      export.magDat = readMagUncertainty(uncLines);
-      export.hasAleatory = hasAleatory(uncLines);
-      if (log.isLoggable(Level.INFO)) {
-        log.info(export.magDat.toString());
-      }
+      Exporter export = read(sf);
+      File outFile = outFile(outDir, sf.region, export.displayName);
+      Files.createParentDirs(outFile);
+      export.writeXML(outFile);
 
-      while (lines.hasNext()) {
-
-        // collect data on source name line
-        SourceData fDat = new SourceData();
-        List<String> srcInfo = splitToList(lines.next(), SPACE);
-        MFD_Type mfdType = MFD_Type.typeForID(Integer.valueOf(srcInfo.get(0)));
-        fDat.file = sf;
-        fDat.focalMech = Utils.typeForID(Integer.valueOf(srcInfo.get(1)));
-        fDat.nMag = Integer.valueOf(srcInfo.get(2));
-        String srcName = Joiner.on(' ').join(Iterables.skip(srcInfo, nameIdx));
-        fDat.id = fetchId(srcName);
-        fDat.name = cleanName(srcName);
-
-        // read source magnitude data and build mfds; due to
-        // peculiarities
-        // of how mfd's are handled with different uncertainty settings
-        // under certain conditions (e.g. when mMax < 6.5), cloned
-        // magDat
-        // are used so that any changes to magDat do not percolate to
-        // other sources TODO these peculiarities are handled when
-        // sources
-        // are reconstituted so this cloning probably isn't necessary
-        List<String> mfdDat = Parsing.toLineList(lines, fDat.nMag);
-
-        // starting with 2014 this may return a source with no mfds (due
-        // to weights being set to 0; Zeng and Bird low-weight offshore
-        // faults). Exception is caught below, a warning logged, and
-        // iteration continues.
-        read_MFDs(fDat, mfdType, mfdDat, export);
-
-        readTrace(lines, fDat);
-
-        // append dip to name if normal (NSHMP 3dip)
-        if (fDat.focalMech == FocalMech.NORMAL && sf.region == SourceRegion.WUS) {
-          fDat.name += " " + ((int) fDat.dip);
-        }
-        if (fDat.mfds.size() == 0) {
-          log.warning("Dropping source with no MFDs: " + fDat.name);
-          continue;
-        }
-        if (export.map.containsKey(fDat.name)) {
-          log.warning("Name map already contains: " + fDat.name);
-          // there are strike slip faults with no geometric dip
-          // variants nested within
-          // files of mostly normal faults with dip variants; because
-          // the dip is not
-          // appended to the name of SS faults, the name repeats;
-          // however the
-          // LinkedListMultimap takescare of collecting the different
-          // mfds and weights
-          // TODO reduce/combine MFDs see nv.3dip.ch.xml Kane SPring
-          // Wash
-        }
-        export.map.put(fDat.name, fDat);
-      }
+    } catch (Exception e) {
+      log.log(Level.SEVERE, "Fault parse error: exiting", e);
+      System.exit(1);
+    }
+  }
 
-      // KLUDGY: this should be handled now that a Set of names is used
-      // in FaultSourceData, however we want to be aware of potential
-      // duplicates so we now log the addition of existing names to
-      // the name set.
-      // if (fName.contains("3dip")) cleanStrikeSlip(srcList);
+  static File outFile(String outDir, SourceRegion region, String displayName) {
+    String S = File.separator;
 
-      String S = File.separator;
+    /*
+     * unsegmented aFaults use full down dip width floaters and therefore
+     * require config override
+     */
+    String caSubDir = displayName.equals("aFault_unseg") ? "CA Custom" + S : "";
 
-      /*
-       * unsegmented aFaults use full down dip width floaters and therefore
-       * require config override
-       */
-      String caSubDir = export.displayName.equals("aFault_unseg") ? "CA Custom" + S : "";
+    return new File(outDir + region + S + FAULT + S + caSubDir + displayName + ".xml");
+  }
 
-      String outPath = outDir + sf.region + S + sf.type + S + caSubDir + export.displayName +
-          ".xml";
-      File outFile = new File(outPath);
-      Files.createParentDirs(outFile);
-      export.writeXML(new File(outPath));
+  /* Parse a source file into an Exporter without writing it. */
+  Exporter read(SourceFile sf) throws IOException {
+    log.info("");
+    log.info("Source file: " + sf.name + " " + sf.region + " " + sf.weight);
+    Exporter export = new Exporter();
+    export.name = sf.name;
+    export.displayName = cleanFileName(export.name);
+    export.weight = sf.weight;
+    export.region = sf.region;
+
+    // mag scaling relationships are region dependent
+
+    // KLUDGY nameIdx indicates the array index at which a fault
+    // name begins; most NSHMP files define the fault name on a line
+    // such as:
+    //
+    // 2 3 1 1 805 Juniper Mountain fault
+    //
+    // where the starting index would be 4. (The identifying number is
+    // necessary to distinguish some faults, e.g. Seattle Fault in
+    // orwa_c.in)
+    // CA files generally start at idx=3; general WUS case is 4
+    //
+    // int nameIdx = (sf.region == CA || sf.region == CEUS) ? 3 :
+    // now test CA by name as region has been moved to WUS
+    int nameIdx = (isCA(sf.name) || sf.region == CEUS)
+        ? 3 : (sf.name.equals("wasatch.3dip.74.in")) ? 4 : 5;
+
+    Iterator<String> lines = sf.lineIterator();
+
+    // skip irrelevant header data
+    skipSiteData(lines);
+    lines.next(); // rMax and discretization
+    skipGMMs(lines);
+    lines.next(); // distance sampling on fault and dMove
+
+    // load magnitude uncertainty data
+    List<String> uncLines = Parsing.toLineList(lines, 4);
+    export.magDat = readMagUncertainty(uncLines);
+    export.hasAleatory = hasAleatory(uncLines);
+    if (log.isLoggable(Level.INFO)) {
+      log.info(export.magDat.toString());
+    }
 
-    } catch (Exception e) {
-      log.log(Level.SEVERE, "Fault parse error: exiting", e);
-      System.exit(1);
+    while (lines.hasNext()) {
+
+      // collect data on source name line
+      SourceData fDat = new SourceData();
+      LineTokenizer srcInfo = LineTokenizer.of(lines.next());
+      MFD_Type mfdType = MFD_Type.typeForID(srcInfo.nextInt());
+      fDat.file = sf;
+      fDat.focalMech = Utils.typeForID(srcInfo.nextInt());
+      fDat.nMag = srcInfo.nextInt();
+      String srcName = srcInfo.skip(nameIdx - 3).remaining();
+      fDat.id = fetchId(srcName);
+      fDat.name = cleanName(srcName);
+
+      // read source magnitude data and build mfds; due to
+      // peculiarities
+      // of how mfd's are handled with different uncertainty settings
+      // under certain conditions (e.g. when mMax < 6.5), cloned
+      // magDat
+      // are used so that any changes to magDat do not percolate to
+      // other sources TODO these peculiarities are handled when
+      // sources
+      // are reconstituted so this cloning probably isn't necessary
+      List<String> mfdDat = Parsing.toLineList(lines, fDat.nMag);
+
+      // starting with 2014 this may return a source with no mfds (due
+      // to weights being set to 0; Zeng and Bird low-weight offshore
+      // faults). Exception is caught below, a warning logged, and
+      // iteration continues.
+      read_MFDs(fDat, mfdType, mfdDat, export);
+
+      readTrace(lines, fDat);
+
+      // append dip to name if normal (NSHMP 3dip)
+      if (fDat.focalMech == FocalMech.NORMAL && sf.region == SourceRegion.WUS) {
+        fDat.name += " " + ((int) fDat.dip);
+      }
+      if (fDat.mfds.size() == 0) {
+        log.warning("Dropping source with no MFDs: " + fDat.name);
+        continue;
+      }
+      if (export.map.containsKey(fDat.name)) {
+        log.warning("Name map already contains: " + fDat.name);
+        // there are strike slip faults with no geometric dip
+        // variants nested within
+        // files of mostly normal faults with dip variants; because
+        // the dip is not
+        // appended to the name of SS faults, the name repeats;
+        // however the
+        // LinkedListMultimap takescare of collecting the different
+        // mfds and weights, which are reduced on export (e.g.
+        // nv.3dip.ch.xml Kane Spring Wash)
+      }
+      export.map.put(fDat.name, fDat);
     }
+
+    // KLUDGY: this should be handled now that a Set of names is used
+    // in FaultSourceData, however we want to be aware of potential
+    // duplicates so we now log the addition of existing names to
+    // the name set.
+    // if (fName.contains("3dip")) cleanStrikeSlip(srcList);
+
+    return export;
   }
 
   private MagUncertainty readMagUncertainty(List<String> src) {
 
     // epistemic
-    double[] epiDeltas = Doubles.toArray(splitToDoubleList(src.get(1), SPACE));
-    double[] epiWeights = Doubles.toArray(splitToDoubleList(src.get(2), SPACE));
+    double[] epiDeltas = LineTokenizer.of(src.get(1)).toDoubleArray();
+    double[] epiWeights = LineTokenizer.of(src.get(2)).toDoubleArray();
     double epiCutoff = 6.5;
 
     // aleatory
-    List<Double> aleatoryMagDat = splitToDoubleList(stripComment(src.get(3), '!'), SPACE);
-    double aleatorySigmaTmp = aleatoryMagDat.get(0);
+    LineTokenizer aleatoryMagDat = LineTokenizer.of(stripComment(src.get(3), '!'));
+    double aleatorySigmaTmp = aleatoryMagDat.nextDouble();
     boolean moBalance = aleatorySigmaTmp > 0.0;
     double aleaSigma = Math.abs(aleatorySigmaTmp);
-    int aleaCount = aleatoryMagDat.get(1).intValue() * 2 + 1;
+    int aleaCount = (int) aleatoryMagDat.nextDouble() * 2 + 1;
     double aleaCutoff = 6.5;
 
     return MagUncertainty.create(epiDeltas, epiWeights, epiCutoff,
@@ -244,9 +248,9 @@ class FaultConverter {
     // rather than add methods just for parsing.
 
     // aleatory
-    List<Double> aleatoryMagDat = splitToDoubleList(stripComment(src.get(3), '!'), SPACE);
-    double aleaSigma = Math.abs(aleatoryMagDat.get(0));
-    int aleaCount = aleatoryMagDat.get(1).intValue() * 2 + 1;
+    LineTokenizer aleatoryMagDat = LineTokenizer.of(stripComment(src.get(3), '!'));
+    double aleaSigma = Math.abs(aleatoryMagDat.nextDouble());
+    int aleaCount = (int) aleatoryMagDat.nextDouble() * 2 + 1;
 
     return aleaCount > 1 && aleaSigma != 0.0;
   }
@@ -270,11 +274,13 @@ class FaultConverter {
     initRefCH(export);
 
     boolean floats = false;
+    LineTokenizer tokenizer = LineTokenizer.of("");
     for (String line : lines) {
+      tokenizer.reset(line);
       CH_Data ch = CH_Data.create(
-          Parsing.readDouble(line, 0),
-          Parsing.readDouble(line, 1),
-          Parsing.readDouble(line, 2),
+          tokenizer.nextDouble(),
+          tokenizer.nextDouble(),
+          tokenizer.nextDouble(),
           floats);
 
       // added 2014 filter for 0 weight MFDs
@@ -300,7 +306,7 @@ class FaultConverter {
     return name.startsWith("aFault") || name.startsWith("bFault");
   }
 
-  private static RuptureScaling getScalingModel(String name) {
+  static RuptureScaling getScalingModel(String name) {
     return isCA(name) ? NSHM_FAULT_CA_ELLB_WC94_AREA : NSHM_FAULT_WC94_LENGTH;
   }
 
@@ -387,12 +393,13 @@ class FaultConverter {
   private void readTrace(Iterator<String> it, SourceData fd) {
     readFaultGeom(it.next(), fd);
 
-    int traceCount = Parsing.readInt(it.next(), 0);
+    int traceCount = LineTokenizer.of(it.next()).nextInt();
     List<String> traceDat = Parsing.toLineList(it, traceCount);
     List<Location> locs = Lists.newArrayList();
+    LineTokenizer latlon = LineTokenizer.of("");
     for (String ptDat : traceDat) {
-      List<Double> latlon = splitToDoubleList(ptDat, SPACE);
-      locs.add(Location.create(latlon.get(0), latlon.get(1), 0.0));
+      latlon.reset(ptDat);
+      locs.add(Location.create(latlon.nextDouble(), latlon.nextDouble(), 0.0));
     }
     fd.locs = LocationList.create(locs);
 
@@ -405,10 +412,10 @@ class FaultConverter {
   }
 
   private static void readFaultGeom(String line, SourceData fd) {
-    List<Double> fltDat = splitToDoubleList(line, SPACE);
-    fd.dip = fltDat.get(0);
-    fd.width = fltDat.get(1);
-    fd.top = fltDat.get(2);
+    LineTokenizer fltDat = LineTokenizer.of(line);
+    fd.dip = fltDat.nextDouble();
+    fd.width = fltDat.nextDouble();
+    fd.top = fltDat.nextDouble();
   }
 
   private static void skipSiteData(Iterator<String> it) {
@@ -639,12 +646,14 @@ class FaultConverter {
             }
           }
         }
-        // consolidate MFDs at beginning of element
+        // consolidate MFDs at beginning of element, combining those
+        // that differ only in rate
+        List<MFD_Data> mfds = new ArrayList<>();
         for (FaultConverter.SourceData fDat : fDatList) {
-          // MFDs
-          for (MFD_Data mfdDat : fDat.mfds) {
-            mfdDat.appendTo(src, (mfdDat instanceof CH_Data) ? refCH : refGR);
-          }
+          mfds.addAll(fDat.mfds);
+        }
+        for (MFD_Data mfdDat : MfdReducer.reduce(mfds)) {
+          mfdDat.appendTo(src, (mfdDat instanceof CH_Data) ? refCH : refGR);
         }
         // add id and append geometry from first entry
         FaultConverter.SourceData first = fDatList.get(0);
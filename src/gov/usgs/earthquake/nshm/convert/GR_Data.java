@@ -15,13 +15,10 @@ import static gov.usgs.earthquake.nshmp.mfd.MfdType.GR;
 import static gov.usgs.earthquake.nshmp.mfd.MfdType.GR_TAPER;
 import static gov.usgs.earthquake.nshmp.mfd.Mfds.magCount;
 
-import gov.usgs.earthquake.nshmp.internal.Parsing;
-import gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter;
-
 import gov.usgs.earthquake.nshm.convert.FaultConverter.SourceData;
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
 import gov.usgs.earthquake.nshm.util.Utils;
 
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,12 +70,12 @@ public class GR_Data implements MFD_Data {
   /* For parsing grid sources; mag bins are recentered */
   static GR_Data createForGrid(String src) {
     GR_Data gr = new GR_Data();
-    List<Double> grDat = Parsing.splitToDoubleList(src, Delimiter.SPACE);
-    gr.bVal = grDat.get(0);
-    gr.mMin = grDat.get(1);
-    gr.mMax = grDat.get(2);
-    gr.dMag = grDat.get(3);
-    gr.cMag = grDat.get(4);
+    LineTokenizer grDat = LineTokenizer.of(src);
+    gr.bVal = grDat.nextDouble();
+    gr.mMin = grDat.nextDouble();
+    gr.mMax = grDat.nextDouble();
+    gr.dMag = grDat.nextDouble();
+    gr.cMag = grDat.nextDouble();
     gr.recenterMagBins();
     gr.weight = 1.0;
     gr.nMag = magCount(gr.mMin, gr.mMax, gr.dMag);
@@ -99,18 +96,28 @@ public class GR_Data implements MFD_Data {
     return gr;
   }
 
+  /* For writers that modify the mMax or weight of a shared instance */
+  GR_Data copy() {
+    GR_Data gr = new GR_Data();
+    gr.aVal = aVal;
+    gr.bVal = bVal;
+    gr.mMin = mMin;
+    gr.mMax = mMax;
+    gr.dMag = dMag;
+    gr.cMag = cMag;
+    gr.weight = weight;
+    gr.nMag = nMag;
+    return gr;
+  }
+
   private void readSource(String src) {
-    List<Double> grDat = Parsing.splitToDoubleList(src, Delimiter.SPACE);
-    aVal = grDat.get(0);
-    bVal = grDat.get(1);
-    mMin = grDat.get(2);
-    mMax = grDat.get(3);
-    dMag = grDat.get(4);
-    try {
-      weight = grDat.get(5); // may or may not be present
-    } catch (IndexOutOfBoundsException oobe) {
-      weight = 1;
-    }
+    LineTokenizer grDat = LineTokenizer.of(src);
+    aVal = grDat.nextDouble();
+    bVal = grDat.nextDouble();
+    mMin = grDat.nextDouble();
+    mMax = grDat.nextDouble();
+    dMag = grDat.nextDouble();
+    weight = grDat.hasNext() ? grDat.nextDouble() : 1; // may or may not be present
     nMag = 0;
   }
 
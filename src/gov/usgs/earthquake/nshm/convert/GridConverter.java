@@ -62,90 +62,7 @@ class GridConverter {
 
     try {
       log.info("Starting source: " + sf.name);
-      GridSourceData srcDat = new GridSourceData();
-      srcDat.name = sf.name;
-      srcDat.weight = sf.weight;
-      srcDat.id = -1;
-
-      Iterator<String> lines = sf.lineIterator();
-
-      // grid of sites (1-30) or station list (0)
-      int numSta = Parsing.readInt(lines.next(), 0);
-      // skip stations or lat-lon bounds
-      Iterators.advance(lines, (numSta > 0) ? numSta : 2);
-      // skip site data (Vs30) and Campbell basin depth
-      lines.next();
-      // read rupture top data (num, [z, wt M<=6.5, wt M>6.5], ...)
-      readRuptureTop(lines.next(), srcDat);
-      srcDat.depthMag = 6.5;
-      srcDat.maxDepth = (sf.region == CEUS) ? 22.0 : sf.name.contains("deep") ? 58.0 : 14.0;
-      // read focal mech weights (SS, REVERSE, NORMAL)
-      readMechWeights(lines.next(), srcDat);
-      // read gm lookup array parameters; delta R and R max
-      readLookupArrayDat(lines.next(), srcDat);
-
-      // read source region dimensions
-      readSourceLatRange(lines.next(), srcDat);
-      readSourceLonRange(lines.next(), srcDat);
-
-      // mag data - grids always supply GR data, however, Charleston fixed
-      // strike grids are also fixed mag to we convert them to SINGLE here
-      srcDat.grDat = GR_Data.createForGrid(lines.next());
-      if (DoubleMath.fuzzyEquals(srcDat.grDat.mMin, srcDat.grDat.mMax, 0.000001)) {
-        // if mMin == mMax, populate CH_Data field
-        srcDat.chDat = CH_Data.create(srcDat.grDat.mMin, 0.0, 1.0, false);
-      }
-
-      // iflt, ibmat, maxMat, Mtaper
-      // iflt = 0 -> no finite faults
-      // iflt = 1 -> apply finite fault corrections for M>6 assuming random
-      // strike
-      // iflt = 2 -> use finite line faults for M>6 and fix strike
-      // iflt = 3 -> use finite faults with Johston mblg to Mw converter
-      // iflt = 4 -> use finite faults with Boore and Atkinson mblg to Mw
-      // converter
-      // ibmax = 0 -> use specified b value
-      // ibmax = 1 -> use b value matrix (provided in a file)
-      // maxMat = 0 -> use specified maximum magnitude
-      // maxMat = 1 -> use maximum magnitude matrix (provided in a file)
-      // maxMat = -1 -> use as maximum magnitude the minimum between the
-      // default and grid value
-      String grdDat = lines.next();
-      srcDat.fltCode = FaultCode.typeForID(Parsing.readInt(grdDat, 0));
-      srcDat.bGrid = Parsing.readInt(grdDat, 1) > 0 ? true : false;
-      srcDat.mMaxGrid = Parsing.readInt(grdDat, 2) > 0 ? true : false;
-      srcDat.mTaper = Parsing.readDouble(grdDat, 3); // magnitude at which
-                                                     // wtGrid is applied
-      srcDat.weightGrid = srcDat.mTaper > 0 ? true : false;
-
-      if (srcDat.bGrid) srcDat.bGridURL = readSourceURL(lines.next(), sf);
-      if (srcDat.mMaxGrid) srcDat.mMaxGridURL = readSourceURL(lines.next(), sf);
-      if (srcDat.weightGrid) srcDat.weightGridURL = readSourceURL(lines.next(), sf);
-      srcDat.aGridURL = readSourceURL(lines.next(), sf);
-
-      // read rate information if rateType is CUMULATIVE
-      // it will require conversion to INCREMENTAL
-      readRateInfo(lines.next(), srcDat);
-
-      // read strike or rjb array
-      if (srcDat.fltCode == FIXED) {
-        double strike = Parsing.readDouble(lines.next(), 0);
-        if (strike < 0.0) strike += 360.0;
-        srcDat.strike = strike;
-      }
-
-      // done reading; skip atten rel configs
-
-      srcDat.region = Regions.createRectangularGridded(
-          "NSHMP " + srcDat.name,
-          Location.create(srcDat.minLat, srcDat.minLon),
-          Location.create(srcDat.maxLat, srcDat.maxLon),
-          srcDat.dLat, srcDat.dLon,
-          GriddedRegion.ANCHOR_0_0);
-
-      log.info(srcDat.toString());
-
-      initDataGrids(srcDat);
+      GridSourceData srcDat = read(sf);
 
       String S = File.separator;
       String outPath = dir + S + sf.region + S + sf.type + S;
@@ -156,6 +73,7 @@ class GridConverter {
       File outFile = new File(outPath, baseName + ".xml");
       Files.createParentDirs(outFile);
       srcDat.writeXML(outFile);
+      if (srcDat.mfdPool.requests() > 0) log.info("  Node MFDs: " + srcDat.mfdPool);
       
       Path csvOut = Paths.get(outPath);
       srcDat.writeCsv(csvOut);
@@ -166,6 +84,95 @@ class GridConverter {
     }
   }
 
+  /* Parse a grid source file and load its data grids. */
+  GridSourceData read(SourceFile sf) throws IOException {
+    GridSourceData srcDat = new GridSourceData();
+    srcDat.name = sf.name;
+    srcDat.weight = sf.weight;
+    srcDat.id = -1;
+
+    Iterator<String> lines = sf.lineIterator();
+
+    // grid of sites (1-30) or station list (0)
+    int numSta = Parsing.readInt(lines.next(), 0);
+    // skip stations or lat-lon bounds
+    Iterators.advance(lines, (numSta > 0) ? numSta : 2);
+    // skip site data (Vs30) and Campbell basin depth
+    lines.next();
+    // read rupture top data (num, [z, wt M<=6.5, wt M>6.5], ...)
+    readRuptureTop(lines.next(), srcDat);
+    srcDat.depthMag = 6.5;
+    srcDat.maxDepth = (sf.region == CEUS) ? 22.0 : sf.name.contains("deep") ? 58.0 : 14.0;
+    // read focal mech weights (SS, REVERSE, NORMAL)
+    readMechWeights(lines.next(), srcDat);
+    // read gm lookup array parameters; delta R and R max
+    readLookupArrayDat(lines.next(), srcDat);
+
+    // read source region dimensions
+    readSourceLatRange(lines.next(), srcDat);
+    readSourceLonRange(lines.next(), srcDat);
+
+    // mag data - grids always supply GR data, however, Charleston fixed
+    // strike grids are also fixed mag to we convert them to SINGLE here
+    srcDat.grDat = GR_Data.createForGrid(lines.next());
+    if (DoubleMath.fuzzyEquals(srcDat.grDat.mMin, srcDat.grDat.mMax, 0.000001)) {
+      // if mMin == mMax, populate CH_Data field
+      srcDat.chDat = CH_Data.create(srcDat.grDat.mMin, 0.0, 1.0, false);
+    }
+
+    // iflt, ibmat, maxMat, Mtaper
+    // iflt = 0 -> no finite faults
+    // iflt = 1 -> apply finite fault corrections for M>6 assuming random
+    // strike
+    // iflt = 2 -> use finite line faults for M>6 and fix strike
+    // iflt = 3 -> use finite faults with Johston mblg to Mw converter
+    // iflt = 4 -> use finite faults with Boore and Atkinson mblg to Mw
+    // converter
+    // ibmax = 0 -> use specified b value
+    // ibmax = 1 -> use b value matrix (provided in a file)
+    // maxMat = 0 -> use specified maximum magnitude
+    // maxMat = 1 -> use maximum magnitude matrix (provided in a file)
+    // maxMat = -1 -> use as maximum magnitude the minimum between the
+    // default and grid value
+    String grdDat = lines.next();
+    srcDat.fltCode = FaultCode.typeForID(Parsing.readInt(grdDat, 0));
+    srcDat.bGrid = Parsing.readInt(grdDat, 1) > 0 ? true : false;
+    srcDat.mMaxGrid = Parsing.readInt(grdDat, 2) > 0 ? true : false;
+    srcDat.mTaper = Parsing.readDouble(grdDat, 3); // magnitude at which
+                                                   // wtGrid is applied
+    srcDat.weightGrid = srcDat.mTaper > 0 ? true : false;
+
+    if (srcDat.bGrid) srcDat.bGridURL = readSourceURL(lines.next(), sf);
+    if (srcDat.mMaxGrid) srcDat.mMaxGridURL = readSourceURL(lines.next(), sf);
+    if (srcDat.weightGrid) srcDat.weightGridURL = readSourceURL(lines.next(), sf);
+    srcDat.aGridURL = readSourceURL(lines.next(), sf);
+
+    // read rate information if rateType is CUMULATIVE
+    // it will require conversion to INCREMENTAL
+    readRateInfo(lines.next(), srcDat);
+
+    // read strike or rjb array
+    if (srcDat.fltCode == FIXED) {
+      double strike = Parsing.readDouble(lines.next(), 0);
+      if (strike < 0.0) strike += 360.0;
+      srcDat.strike = strike;
+    }
+
+    // done reading; skip atten rel configs
+
+    srcDat.region = Regions.createRectangularGridded(
+        "NSHMP " + srcDat.name,
+        Location.create(srcDat.minLat, srcDat.minLon),
+        Location.create(srcDat.maxLat, srcDat.maxLon),
+        srcDat.dLat, srcDat.dLon,
+        GriddedRegion.ANCHOR_0_0);
+
+    log.info(srcDat.toString());
+
+    initDataGrids(srcDat);
+    return srcDat;
+  }
+
   /*
    * This line is set up to configure a probability distribution of magnitude
    * dependent rupture top depths. These are actually not used in favor of fixed
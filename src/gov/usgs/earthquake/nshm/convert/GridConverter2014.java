@@ -16,6 +16,7 @@ import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToDoubleList;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
 
 import gov.usgs.earthquake.nshm.util.FaultCode;
+import gov.usgs.earthquake.nshm.util.Utils;
 
 import java.io.File;
 import java.io.IOException;
@@ -23,16 +24,14 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import gov.usgs.earthquake.nshmp.data.Data;
 import gov.usgs.earthquake.nshmp.eq.fault.FocalMech;
 import gov.usgs.earthquake.nshmp.geo.GriddedRegion;
 import gov.usgs.earthquake.nshmp.geo.Location;
@@ -41,21 +40,12 @@ import gov.usgs.earthquake.nshmp.geo.Region;
 import gov.usgs.earthquake.nshmp.geo.Regions;
 import gov.usgs.earthquake.nshmp.internal.Parsing;
 import gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter;
-import gov.usgs.earthquake.nshmp.util.Maths;
 
-import com.google.common.base.Function;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultiset;
 import com.google.common.io.Files;
 import com.google.common.math.DoubleMath;
-import com.google.common.primitives.Doubles;
 
 /*
  * Convert 2014 CEUS NSHMP grid input files to XML.
@@ -91,70 +81,35 @@ class GridConverter2014 {
 
   void convert(List<SourceFile> files, String dir) {
 
-    Multimap<String, GridSourceData2014> srcDatMap = ArrayListMultimap.create();
-
     // because we're trying to consolidate RLME mMax branches we agreggate
     // parsed file data so we can extract SINGLE mag and weight data
+    RlmeConsolidator rlmes = new RlmeConsolidator();
     for (SourceFile file : files) {
       String id = Iterables.get(Parsing.split(file.name, Delimiter.PERIOD), 0);
       if (id.startsWith("CEUSchar") || id.contains("RLME")) {
         GridSourceData2014 srcDat = convert(file);
-        srcDatMap.put(id, srcDat);
+        rlmes.add(id, srcDat);
       } else {
         GridSourceData2014 srcDat = convert(file);
         exportZoned(srcDat, dir);
       }
     }
 
-    // create map of reference source data that will contain multiple ch mfds
-    Map<String, GridSourceData2014> rlmeRefSrcDat = new HashMap<>();
-    for (String id : srcDatMap.keySet()) {
-      Collection<GridSourceData2014> srcDatList = srcDatMap.get(id);
-      for (GridSourceData2014 srcDat : srcDatList) {
-        if (rlmeRefSrcDat.containsKey(id)) {
-          rlmeRefSrcDat.get(id).chDats.add(srcDat.chDat);
-        } else {
-          srcDat.chDats = Sets.newTreeSet(Ordering.natural().onResultOf(
-              new Function<CH_Data, Double>() {
-                @Override
-                public Double apply(CH_Data input) {
-                  return input.mag;
-                }
-              }));
-          srcDat.chDats.add(srcDat.chDat);
-          rlmeRefSrcDat.put(id, srcDat);
-        }
+    // audit and export consolidated data; SINGLE mag weights in RLMEs are
+    // normalized to sum to 1.0 and the file weight is the sum of the
+    // original individual fortran input file weights
+    try {
+      for (GridSourceData2014 srcDat : rlmes.consolidate(log)) {
+        exportRlme(srcDat, dir);
       }
-    }
-
-    // now export consolidated data
-    for (GridSourceData2014 srcDat : rlmeRefSrcDat.values()) {
-      exportRlme(srcDat, dir);
+    } catch (Exception e) {
+      log.log(Level.SEVERE, "RLME consolidation error: exiting", e);
+      System.exit(1);
     }
 
   }
 
   void exportRlme(GridSourceData2014 srcDat, String dir) {
-
-    // correct SINGLE mag weights in RLMEs; want to have mMax distribution
-    // weights sum to 1.0, matched to correct file weight (sum of original
-    // individual fortran input file weights)
-
-    double fileWeight = Data.sum(FluentIterable.from(srcDat.chDats).transform(
-        new Function<CH_Data, Double>() {
-          @Override
-          public Double apply(CH_Data chData) {
-            return chData.weight;
-          }
-        }).toList());
-    // summing (above) induces rounding errors
-    fileWeight = Maths.round(fileWeight, 8);
-    srcDat.weight = fileWeight;
-    for (CH_Data chDat : srcDat.chDats) {
-      chDat.weight /= fileWeight;
-      chDat.weight = Maths.round(chDat.weight, 8);
-    }
-
     try {
       String S = File.separator;
       String outPath = dir + S + srcDat.srcRegion + S + srcDat.srcType + S + "rlme" + S;
@@ -172,7 +127,7 @@ class GridConverter2014 {
 
   }
 
-  void exportZoned(GridSourceData2014 srcDat, String dir) {
+  void exportZoned(final GridSourceData2014 srcDat, String dir) {
     try {
       String S = File.separator;
       String srcName = srcDat.name.substring(0, srcDat.name.lastIndexOf('.'));
@@ -182,17 +137,27 @@ class GridConverter2014 {
       String displayNameBase = (srcName.contains("2zone") ? "USGS " : "SSCn ") +
           (srcName.contains("adapt") ? "Adaptive Smoothing " : "Fixed Smoothing ");
 
-      for (int i = 0; i < srcDat.mMaxWtMaps.size(); i++) {
+      // zone nodes come from the zone map built at parse time
+      MaxZoneMap zones = srcDat.mMaxZones;
+      List<Callable<Void>> writers = new ArrayList<>();
+      for (int i = 0; i < zones.zoneCount(); i++) {
         // skip empty zones
-        double mMaxZoneValue = new Integer(i + 1).doubleValue();
-        if (srcDat.mMaxZoneBag.count(mMaxZoneValue) == 0) continue;
+        if (zones.flagCount(i) == 0) continue;
 
-        srcDat.fileName = "Zone " + (i + 1) + ".xml";
-        srcDat.displayName = displayNameBase + "Zone " + (i + 1);
-        File outFile = new File(outPath, srcDat.fileName);
+        final int zone = i;
+        final int[] nodes = zones.nodes(i);
+        final String displayName = displayNameBase + "Zone " + (i + 1);
+        final File outFile = new File(outPath, "Zone " + (i + 1) + ".xml");
         Files.createParentDirs(outFile);
-        srcDat.writeXML(outFile, i);
+        writers.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            srcDat.writeXML(outFile, displayName, zone, nodes);
+            return null;
+          }
+        });
       }
+      Utils.invokeAll(writers);
 
     } catch (Exception e) {
       log.log(Level.SEVERE, "Grid export error: exiting", e);
@@ -306,10 +271,10 @@ class GridConverter2014 {
 
       initDataGrids(srcDat);
 
-      // now that grids are populated; consolidate zone counts in a bag
+      // now that grids are populated; resolve mMax zones once
       if (srcDat.mMaxGrid) {
-        List<Double> mMaxValues = Doubles.asList(srcDat.mMaxDat);
-        srcDat.mMaxZoneBag = TreeMultiset.create(mMaxValues);
+        srcDat.mMaxZones = MaxZoneMap.create(
+            srcDat.mMaxDat, srcDat.aDat, srcDat.mMaxWtMaps.size());
       }
 
       log.info(srcDat.toString());
@@ -114,6 +114,9 @@ class GridSourceData {
   GriddedRegion region;
   double[] aDat, bDat, mMaxDat, wgtDat;
 
+  // identical node MFDs are built and formatted once
+  final MfdPool mfdPool = new MfdPool();
+
   private static final String LF = System.getProperty("line.separator");
 
   // @formatter:off
@@ -239,12 +242,12 @@ class GridSourceData {
 		addAttribute(WEIGHT, grDat.weight, e);
 		addSourceProperties(settings);
 		Element nodesElem = addElement(NODES, root);
-		for (int i=0; i<aDat.length; i++) {
-			double aVal = aDat[i];
-			if (aVal <= 0.0) continue;
+		CeusMfdTable mfds = ceusMfdTable();
+		for (int k=0; k<mfds.nodes.length; k++) {
+			int i = mfds.nodes[k];
 			Element nodeElem = addElement(NODE, nodesElem);
 			nodeElem.setTextContent(Utils.locToString(region.locationForIndex(i)));
-			addCEUS_MFD(i, nodeElem);
+			addAttribute(RATES, mfds.rates(k), nodeElem);
 			addAttribute(TYPE, INCR, nodeElem);
 		}
 	}
@@ -401,50 +404,47 @@ class GridSourceData {
 		
 //		if (nodeMax <= grDat.mMax) {
 		// mfdMax is either gridMax or some higher value
+		double aVal = aDat[i];
 		double bVal = bGrid ? bDat[i] : grDat.bVal;
-		GR_Data grNode = GR_Data.create(aDat[i], bVal, grDat.mMin, mfdMax, grDat.dMag, 1.0);
-		IncrementalMfd mfd = Mfds.newGutenbergRichterMoBalancedMFD(
-			grNode.mMin, grNode.dMag, grNode.nMag, grNode.bVal, 1.0);
-		mfd.scaleToIncrRate(grNode.mMin, Mfds.incrRate(grNode.aVal, grNode.bVal, grNode.mMin));
-		if (cutoffMax <= mfdMax) mfd.zeroAboveMag2(cutoffMax);
-		wusScaleRates(mfd, i);
+		double nodeWt = wgtDat[i];
+		MfdPool.Entry mfd = mfdPool.intern(
+			() -> {
+				GR_Data grNode = GR_Data.create(aVal, bVal, grDat.mMin, mfdMax, grDat.dMag, 1.0);
+				IncrementalMfd grMfd = Mfds.newGutenbergRichterMoBalancedMFD(
+					grNode.mMin, grNode.dMag, grNode.nMag, grNode.bVal, 1.0);
+				grMfd.scaleToIncrRate(grNode.mMin, Mfds.incrRate(grNode.aVal, grNode.bVal, grNode.mMin));
+				if (cutoffMax <= mfdMax) grMfd.zeroAboveMag2(cutoffMax);
+				wusScaleRates(grMfd, nodeWt);
+				return grMfd;
+			},
+			aVal, bVal, mfdMax, cutoffMax, nodeWt);
 		// if node mMax <= gridMax add rates for defualt mags as atts
-		addAttribute(RATES, Parsing.toString(mfd.yValues(), "%.8g"), node);
+		addAttribute(RATES, mfd.rates, node);
 		// if node mMax > gridMax add mags as atts as well
 		if (mfdMax > grDat.mMax) {
-			addAttribute(MAGS, Parsing.toString(mfd.xValues(), "%.2f"), node);
+			addAttribute(MAGS, mfd.mags, node);
 		}
 	}
 
-	private void wusScaleRates(IncrementalMfd mfd, int idx) {
+	private void wusScaleRates(IncrementalMfd mfd, double weight) {
 		for (int i = 0; i < mfd.getNum(); i++) {
-			if (mfd.getX(i) > mTaper) mfd.set(i, mfd.getY(i) * wgtDat[idx]);
+			if (mfd.getX(i) > mTaper) mfd.set(i, mfd.getY(i) * weight);
 		}
 	}
 	
 	/////////////// CEUS Customizations ///////////////
 	
-	private void addCEUS_MFD(int i, Element node) {
-	
-		// use fixed value if mMax matrix value was 0
-		// for the large CEUS sources, we're going to fix mMax at it's
-		// highest possible value (in this case 7.35 for AB and 7.15 for J);
-		// the AB mMax grids specify 7.45 but that bin is always zeroed out
-		// by the craton-margin scale factors and would be skipped in any event
-		// due to GR bin recentering
-		
-		double cutoffMax = mMaxDat[i] <= 0 ? grDat.mMax + grDat.dMag / 2. : mMaxDat[i];
-		double nodeMax = mMaxDat[i] <= 0 ? grDat.mMax : mMaxDat[i] - grDat.dMag / 2.0;
-		double mfdMax = name.contains(".AB.") ? abMax : jMax;
-		
-		GR_Data grNode = GR_Data.create(aDat[i], bDat[i], grDat.mMin, mfdMax, grDat.dMag, 1.0);
-		IncrementalMfd mfd = Mfds.newGutenbergRichterMoBalancedMFD(
-			grNode.mMin, grNode.dMag, grNode.nMag, grNode.bVal, 1.0);
-		// a-value is stored as log10(a)
-		mfd.scaleToIncrRate(grNode.mMin, Mfds.incrRate(grNode.aVal, grNode.bVal, grNode.mMin));
-		if (cutoffMax < mfdMax) mfd.zeroAboveMag2(cutoffMax);
-		ceusScaleRates(mfd, i);
-		addAttribute(RATES, Parsing.toString(mfd.yValues(), "%.8g"), node);
+	// columnar node MFDs for the large CEUS grids
+	CeusMfdTable ceusMfdTable() {
+		initMasks();
+		boolean ab = name.contains(".AB.");
+		return CeusMfdTable.create(
+			aDat, bDat, mMaxDat,
+			cratonFlags, marginFlags,
+			ab ? wtmab_cra : wtmj_cra,
+			ab ? wtmab_ext : wtmj_ext,
+			grDat.mMin, grDat.mMax, grDat.dMag,
+			ab ? abMax : jMax);
 	}
 
 	private static double jMax = 7.15;
@@ -464,25 +464,6 @@ class GridSourceData {
 	private static boolean[] marginFlags;
 	
 	
-	private void ceusScaleRates(IncrementalMfd mfd, int idx) {
-		initMasks();
-		boolean craFlag = cratonFlags[idx];
-		boolean marFlag = marginFlags[idx];
-		if ((craFlag | marFlag) == false) return;
-		double[] weights = name.contains(".AB.") ? 
-			(craFlag ? wtmab_cra : wtmab_ext) :
-				(craFlag ? wtmj_cra : wtmj_ext);
-		applyWeight(mfd, weights);
-	}
-	
-	private void applyWeight(IncrementalMfd mfd, double[] weights) {
-		for (int i=0; i<mfd.getNum(); i++) {
-			double weight = weights[i];
-			if (weight == 1.0) continue;
-			mfd.set(i, mfd.getY(i) * weight);
-		}
-	}
-
 	private void initMasks() {
 		// this is only used for CEUS so we don't have to worry about having
 		// the wrong dimensions set for these static fields
@@ -61,7 +61,6 @@ import gov.usgs.earthquake.nshmp.mfd.MfdType;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import com.google.common.collect.Multiset;
 import com.google.common.math.DoubleMath;
 
 /*
@@ -98,7 +97,7 @@ class GridSourceData2014 {
   boolean bGrid, mMaxGrid, weightGrid;
   double mTaper;
   List<Map<Double, Double>> mMaxWtMaps;
-  Multiset<Double> mMaxZoneBag;
+  MaxZoneMap mMaxZones;
 
   // we're now ignoring mTaper in favor of using
   // incremental MFDs where appropriate/necessary
@@ -130,6 +129,25 @@ class GridSourceData2014 {
 	 */
 	public void writeXML(File out, int mMaxIndex) throws ParserConfigurationException,
 			TransformerConfigurationException, TransformerException {
+		int[] nodes = (mMaxIndex >= 0) ? mMaxZones.nodes(mMaxIndex) : null;
+		writeXML(out, displayName, mMaxIndex, nodes);
+	}
+
+	/**
+	 * Write the grid data of a single mMax zone to XML. This method does not
+	 * modify any state and may be called concurrently for different zones.
+	 * 
+	 * @param out file
+	 * @param displayName of zone source set
+	 * @param mMaxIndex index of zone, or -1 for RLME grids
+	 * @param nodes indices of the nodes in zone; ignored for RLME grids
+	 * @throws ParserConfigurationException
+	 * @throws TransformerConfigurationException
+	 * @throws TransformerException
+	 */
+	public void writeXML(File out, String displayName, int mMaxIndex, int[] nodes)
+			throws ParserConfigurationException, TransformerConfigurationException,
+			TransformerException {
 
 		DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
 		DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
@@ -147,7 +165,7 @@ class GridSourceData2014 {
 		
 		if (mMaxIndex >= 0) {
 			// non-negative index indicates an mMax zone
-			writeZoneGrid(root, mMaxIndex);
+			writeZoneGrid(root, mMaxIndex, nodes);
 		} else {
 			// ignore index and write file with multiple SINGLE mfds
 			writeRlmeGrid(root);
@@ -192,22 +210,18 @@ class GridSourceData2014 {
 	}
 
 	// standard grid without customizations requiring incremental MFDs
-	private void writeZoneGrid(Element root, int index) {
+	private void writeZoneGrid(Element root, int index, int[] nodes) {
 		Element settings = addElement(SETTINGS, root);
 		Element mfdRef = addElement(DEFAULT_MFDS, settings);
+		GR_Data zoneDat = grDat.copy();
 		for (Entry<Double, Double> entry : mMaxWtMaps.get(index).entrySet()) {
-			grDat.mMax = entry.getKey() - grDat.dMag / 2.0;
-			grDat.weight = entry.getValue();
-			grDat.appendTo(mfdRef, null);
+			zoneDat.mMax = entry.getKey() - zoneDat.dMag / 2.0;
+			zoneDat.weight = entry.getValue();
+			zoneDat.appendTo(mfdRef, null);
 		}
 		addSourceProperties(settings);
 		Element nodesElem = addElement(NODES, root);
-		for (int i=0; i<aDat.length; i++) {
-			double aVal = aDat[i];
-			if (aVal <= 0.0) continue;
-			double mMaxFlagIndex = ((int) Math.rint(mMaxDat[i])) - 1;
-			// only build for the specified zone
-			if (mMaxFlagIndex != index) continue; 
+		for (int i : nodes) {
 			Element nodeElem = addElement(NODE, nodesElem);
 			nodeElem.setTextContent(Utils.locToString(region.locationForIndex(i)));
 			writeZoneMFDdata(nodeElem, i);
@@ -285,7 +299,7 @@ class GridSourceData2014 {
 			.append(" ").append((bGridURL != null) ? bGridURL.toString() : "").append(LF)
 			.append("       mMax grid: ").append(mMaxGrid)
 			.append(" ").append((mMaxGridURL != null) ? mMaxGridURL.toString() : "").append(LF)
-			.append("mMax zone counts: ").append(mMaxZoneBag).append(LF)
+			.append("mMax zone counts: ").append(mMaxZones).append(LF)
 			.append("     weight grid: ").append(weightGrid)
 			.append(" ").append((weightGridURL != null) ? weightGridURL.toString() : "").append(LF)
 			.append("         M taper: ").append(mTaper).append(LF)
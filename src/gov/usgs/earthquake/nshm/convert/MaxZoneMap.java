@@ -0,0 +1,94 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/*
+ * Map of grid nodes to the mMax zones of 2014 CEUS grids. Zone flags are
+ * rounded to the nearest integer zone number. The indices of the nodes of
+ * each zone that have a non-zero rate are stored in a single array in
+ * compressed sparse row (CSR) layout, ordered by zone and then by node index,
+ * with a per-zone offset table. Zone counts of all flagged nodes, including
+ * zero-rate nodes, are also kept.
+ *
+ * @author Peter Powers
+ */
+final class MaxZoneMap {
+
+  private final int[] flagCounts;
+  private final int[] offsets;
+  private final int[] nodes;
+
+  private MaxZoneMap(int[] flagCounts, int[] offsets, int[] nodes) {
+    this.flagCounts = flagCounts;
+    this.offsets = offsets;
+    this.nodes = nodes;
+  }
+
+  /*
+   * Create a zone map. Flags are rounded to the nearest integer zone number;
+   * flags outside [1, zoneCount] are not in any zone.
+   */
+  static MaxZoneMap create(double[] mMaxDat, double[] aDat, int zoneCount) {
+    checkArgument(mMaxDat.length == aDat.length, "Grid sizes differ");
+    checkArgument(zoneCount >= 0, "Zone count [%s] must be ≥ 0", zoneCount);
+    int[] flagCounts = new int[zoneCount];
+    int[] offsets = new int[zoneCount + 1];
+    for (int i = 0; i < mMaxDat.length; i++) {
+      int zone = zone(mMaxDat[i], zoneCount);
+      if (zone < 0) continue;
+      flagCounts[zone]++;
+      if (aDat[i] > 0.0) offsets[zone + 1]++;
+    }
+    for (int zone = 0; zone < zoneCount; zone++) {
+      offsets[zone + 1] += offsets[zone];
+    }
+    int[] nodes = new int[offsets[zoneCount]];
+    int[] cursors = Arrays.copyOf(offsets, zoneCount);
+    for (int i = 0; i < mMaxDat.length; i++) {
+      if (aDat[i] <= 0.0) continue;
+      int zone = zone(mMaxDat[i], zoneCount);
+      if (zone < 0) continue;
+      nodes[cursors[zone]++] = i;
+    }
+    return new MaxZoneMap(flagCounts, offsets, nodes);
+  }
+
+  /* Zone index of a flag, or -1 if the flag is not in any zone. */
+  private static int zone(double flag, int zoneCount) {
+    int zone = ((int) Math.rint(flag)) - 1;
+    return (zone < 0 || zone >= zoneCount) ? -1 : zone;
+  }
+
+  int zoneCount() {
+    return flagCounts.length;
+  }
+
+  /* The number of nodes flagged with a zone, including zero-rate nodes. */
+  int flagCount(int zone) {
+    return flagCounts[zone];
+  }
+
+  /* The number of non-zero-rate nodes in a zone. */
+  int nodeCount(int zone) {
+    return offsets[zone + 1] - offsets[zone];
+  }
+
+  /* The indices of the non-zero-rate nodes in a zone, in ascending order. */
+  int[] nodes(int zone) {
+    return Arrays.copyOfRange(nodes, offsets[zone], offsets[zone + 1]);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int zone = 0; zone < zoneCount(); zone++) {
+      if (zone > 0) sb.append(", ");
+      sb.append("Zone ").append(zone + 1).append(": ")
+          .append(nodeCount(zone)).append("/").append(flagCount(zone));
+    }
+    return sb.append("]").toString();
+  }
+
+}
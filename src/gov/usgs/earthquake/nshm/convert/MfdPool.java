@@ -0,0 +1,96 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import gov.usgs.earthquake.nshmp.internal.Parsing;
+import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
+
+/*
+ * Interning pool for incremental MFDs that are fully determined by a tuple of
+ * parameters. The first request for a tuple builds the MFD and formats its
+ * rates and magnitudes; later requests for an identical tuple (compared
+ * exactly) reuse the formatted values. Pools are not thread-safe.
+ *
+ * @author Peter Powers
+ */
+final class MfdPool {
+
+  private final Map<Key, Entry> entries = new HashMap<>();
+  private int requests;
+
+  /*
+   * Return the pooled entry for the supplied parameters, building the MFD if
+   * the parameters have not been seen before. The parameters must include
+   * every value that the MFD depends on.
+   */
+  Entry intern(Supplier<IncrementalMfd> mfd, double... params) {
+    requests++;
+    Key key = new Key(params);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      IncrementalMfd built = mfd.get();
+      entry = new Entry(
+          Parsing.toString(built.yValues(), "%.8g"),
+          Parsing.toString(built.xValues(), "%.2f"));
+      entries.put(key, entry);
+    }
+    return entry;
+  }
+
+  /* The number of distinct MFDs. */
+  int size() {
+    return entries.size();
+  }
+
+  /* The number of intern requests. */
+  int requests() {
+    return requests;
+  }
+
+  /* The fraction of requests served by a previously built MFD. */
+  double hitRate() {
+    return (requests == 0) ? 0.0 : (requests - entries.size()) / (double) requests;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MfdPool [requests=%s, distinct=%s, hit rate=%.1f%%]",
+        requests, entries.size(), hitRate() * 100.0);
+  }
+
+  static final class Entry {
+
+    final String rates;
+    final String mags;
+
+    private Entry(String rates, String mags) {
+      this.rates = rates;
+      this.mags = mags;
+    }
+  }
+
+  private static final class Key {
+
+    private final double[] params;
+    private final int hash;
+
+    private Key(double[] params) {
+      this.params = params;
+      this.hash = Arrays.hashCode(params);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && Arrays.equals(params, ((Key) obj).params);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+}
@@ -0,0 +1,162 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import gov.usgs.earthquake.mfd.MfdKernels;
+import gov.usgs.earthquake.nshmp.mfd.Mfds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Exact reduction of the MFDs of a single fault source. Characteristic MFDs
+ * with the same magnitude and floating flag, and Gutenberg-Richter MFDs with
+ * the same b-value, magnitude axis, and corner magnitude, are combined into a
+ * single MFD of unit weight whose rates are the weighted sum of the rates of
+ * the originals. Magnitude uncertainty and tapering scale linearly with rate,
+ * so a combined MFD is equivalent to its parts. All other MFDs are returned
+ * unchanged. Order is that of first occurrence.
+ *
+ * Each combination is checked to preserve per-bin and total moment rates. The
+ * rates that the original and combined MFDs would write, derived from their
+ * a-values or rates as formatted in XML (8 significant digits), must agree to
+ * within a relative tolerance of 1e-5. For Gutenberg-Richter groups, the
+ * in-memory per-bin rates of the originals, computed from each a-value, must
+ * also agree with the combined log-sum a-value to within 1e-10. The in-memory
+ * check is omitted for characteristic groups because it would repeat the
+ * combining arithmetic.
+ *
+ * @author Peter Powers
+ */
+final class MfdReducer {
+
+  private static final double TOLERANCE = 1e-10;
+  private static final double WRITTEN_TOLERANCE = 1e-5;
+  private static final String WRITTEN_FORMAT = "%.8g";
+
+  private MfdReducer() {}
+
+  static List<MFD_Data> reduce(List<MFD_Data> mfds) {
+    Map<List<Object>, List<MFD_Data>> groups = new LinkedHashMap<>();
+    for (MFD_Data mfd : mfds) {
+      groups.computeIfAbsent(key(mfd), k -> new ArrayList<>()).add(mfd);
+    }
+    List<MFD_Data> reduced = new ArrayList<>(groups.size());
+    for (List<MFD_Data> group : groups.values()) {
+      if (group.size() == 1) {
+        reduced.add(group.get(0));
+        continue;
+      }
+      MFD_Data combined = (group.get(0) instanceof CH_Data)
+          ? combineCH(group)
+          : combineGR(group);
+      check(group, combined);
+      reduced.add(combined);
+    }
+    return reduced;
+  }
+
+  /* MFDs with equal keys differ only in rate and weight. */
+  private static List<Object> key(MFD_Data mfd) {
+    if (mfd instanceof CH_Data) {
+      CH_Data ch = (CH_Data) mfd;
+      return Arrays.<Object> asList(CH_Data.class, ch.mag, ch.floats);
+    }
+    GR_Data gr = (GR_Data) mfd;
+    return Arrays.<Object> asList(GR_Data.class, gr.bVal, gr.mMin, gr.mMax, gr.dMag, gr.cMag,
+        gr.nMag);
+  }
+
+  private static CH_Data combineCH(List<MFD_Data> group) {
+    CH_Data first = (CH_Data) group.get(0);
+    double rate = 0.0;
+    for (MFD_Data mfd : group) {
+      CH_Data ch = (CH_Data) mfd;
+      rate += ch.rate * ch.weight;
+    }
+    return CH_Data.create(first.mag, rate, 1.0, first.floats);
+  }
+
+  private static GR_Data combineGR(List<MFD_Data> group) {
+    GR_Data first = (GR_Data) group.get(0);
+    double sum = 0.0;
+    for (MFD_Data mfd : group) {
+      GR_Data gr = (GR_Data) mfd;
+      sum += Math.pow(10, gr.aVal) * gr.weight;
+    }
+    GR_Data combined = GR_Data.create(
+        Math.log10(sum), first.bVal, first.mMin, first.mMax, first.dMag, 1.0);
+    combined.cMag = first.cMag;
+    combined.nMag = first.nMag;
+    return combined;
+  }
+
+  /*
+   * Tapering, if any, is common to all members of a group and is omitted from
+   * the check.
+   */
+  private static void check(List<MFD_Data> group, MFD_Data combined) {
+    MfdKernels.Axis axis = axis(combined);
+    if (combined instanceof GR_Data) compare(group, combined, axis, false, TOLERANCE);
+    compare(group, combined, axis, true, WRITTEN_TOLERANCE);
+  }
+
+  private static void compare(List<MFD_Data> group, MFD_Data combined, MfdKernels.Axis axis,
+      boolean written, double tolerance) {
+    String label = written ? "written" : "in-memory";
+    double[] expected = new double[axis.size()];
+    for (MFD_Data mfd : group) {
+      double[] rates = rates(mfd, axis, written);
+      for (int i = 0; i < axis.size(); i++) {
+        expected[i] += rates[i];
+      }
+    }
+    double[] actual = rates(combined, axis, written);
+    for (int i = 0; i < axis.size(); i++) {
+      checkState(equal(expected[i], actual[i], tolerance),
+          "Combined %s rate at M=%s [%s] differs from sum [%s]", label, axis.mag(i),
+          actual[i], expected[i]);
+    }
+    double moExpected = MfdKernels.momentRate(expected, axis);
+    double moActual = MfdKernels.momentRate(actual, axis);
+    checkState(equal(moExpected, moActual, tolerance),
+        "Combined %s moment rate [%s] differs from sum [%s]", label, moActual, moExpected);
+  }
+
+  private static MfdKernels.Axis axis(MFD_Data mfd) {
+    if (mfd instanceof CH_Data) return MfdKernels.axis(((CH_Data) mfd).mag, 0.0, 1);
+    GR_Data gr = (GR_Data) mfd;
+    return MfdKernels.axis(gr.mMin, gr.dMag, gr.nMag);
+  }
+
+  /*
+   * Weighted per-bin rates of an MFD. If written is true, the rate or a-value
+   * is first rounded as it is formatted in XML.
+   */
+  private static double[] rates(MFD_Data mfd, MfdKernels.Axis axis, boolean written) {
+    if (mfd instanceof CH_Data) {
+      CH_Data ch = (CH_Data) mfd;
+      double rate = written ? asWritten(ch.rate) : ch.rate;
+      return new double[] { rate * ch.weight };
+    }
+    GR_Data gr = (GR_Data) mfd;
+    double aVal = written ? asWritten(gr.aVal) : gr.aVal;
+    double[] rates = new double[axis.size()];
+    for (int i = 0; i < rates.length; i++) {
+      rates[i] = Mfds.grRate(aVal, gr.bVal, axis.mag(i)) * gr.weight;
+    }
+    return rates;
+  }
+
+  private static double asWritten(double value) {
+    return Double.parseDouble(String.format(WRITTEN_FORMAT, value));
+  }
+
+  private static boolean equal(double expected, double actual, double tolerance) {
+    return Math.abs(actual - expected) <= tolerance * Math.abs(expected);
+  }
+
+}
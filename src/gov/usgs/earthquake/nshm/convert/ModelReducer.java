@@ -1,23 +1,399 @@
 package gov.usgs.earthquake.nshm.convert;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import gov.usgs.earthquake.nshm.convert.FaultConverter.Exporter;
+import gov.usgs.earthquake.nshm.convert.FaultConverter.SourceData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
 
 import gov.usgs.earthquake.nshmp.eq.Earthquakes;
 import gov.usgs.earthquake.nshmp.geo.LocationList;
 import gov.usgs.earthquake.nshmp.mfd.Mfds;
 import gov.usgs.earthquake.nshmp.util.Maths;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 
 /*
- * Placeholder class for future model reduction (via source combination).
- * Contains some example calculations of how to derive eq rates from slip rates.
+ * Model reduction via source combination. Fault source files that are
+ * branches of a logic tree frequently repeat the same fault geometry with
+ * different MFDs (e.g. 2008/2014 WUS *.char, *.gr and 3-dip files). This pass
+ * reads a set of fault files and merges those that share at least one
+ * geometry (trace, dip, width, depth and focal mechanism) into a single file
+ * of unit weight; sources with identical geometry become a single source
+ * whose MFD weights are scaled by the weights of their original files. MFDs
+ * that then differ only in rate are combined on export (see MfdReducer).
+ *
+ * Files are only merged if they share magnitude uncertainty and rupture
+ * scaling models. Files that share no geometry with a compatible file are
+ * written unchanged. Per-file source and MFD counts before and after
+ * reduction are logged.
+ *
+ * Also contains some example calculations of how to derive eq rates from
+ * slip rates.
  *
  * @author Peter Powers
  */
-@Deprecated
 class ModelReducer {
 
+  private Logger log;
+
+  private ModelReducer() {}
+
+  static ModelReducer create(Logger log) {
+    ModelReducer mr = new ModelReducer();
+    mr.log = checkNotNull(log);
+    return mr;
+  }
+
+  void reduce(List<SourceFile> files, String outDir) {
+    try {
+      FaultConverter converter = FaultConverter.create(log);
+      List<Exporter> exports = new ArrayList<>();
+      for (SourceFile file : files) {
+        exports.add(converter.read(file));
+      }
+
+      log.info("");
+      log.info("Model reduction: " + files.size() + " files");
+      for (Exporter export : exports) {
+        log.info(String.format("  before: %-40s sources=%-5s mfds=%s",
+            export.name, sourceCount(export), mfdCount(export)));
+      }
+
+      // group compatible files, then merge files that share a geometry
+      Map<List<Object>, List<Exporter>> compatible = new LinkedHashMap<>();
+      for (Exporter export : exports) {
+        compatible.computeIfAbsent(compatibilityKey(export), k -> new ArrayList<>())
+            .add(export);
+      }
+      List<Exporter> reduced = new ArrayList<>();
+      for (List<Exporter> group : compatible.values()) {
+        for (List<Exporter> component : sharedGeometryComponents(group)) {
+          reduced.add((component.size() == 1) ? component.get(0) : merge(component));
+        }
+      }
+
+      write(reduced, outDir);
+
+    } catch (Exception e) {
+      log.log(Level.SEVERE, "Model reduction error: exiting", e);
+      System.exit(1);
+    }
+  }
+
+  private static final Pattern WUS_BRANCH =
+      Pattern.compile("2014WUS(bird|geo|zeng)\\.(\\w+)\\.in");
+
+  private static final String DIAGNOSTIC_HEADER =
+      "ruptureType,name,branch,dip,width,depth,mech,traceSize";
+
+  /*
+   * Collapse the bird, geo and zeng deformation model branches of the 2014 WUS
+   * fault model. Branch files of the same rupture type (65, char, gr) are
+   * joined by fault name into a single file of unit weight. Faults with the
+   * same geometry in every branch become one source whose MFD weights are
+   * scaled by the weights of their original files; combined MFDs therefore
+   * carry the branch-weighted sum of rates in each magnitude bin. Faults whose
+   * geometry differs between branches are kept as separate sources, suffixed
+   * with their branch, and listed in the diagnostics file. Other files are
+   * written unchanged.
+   */
+  void collapseBranches(List<SourceFile> files, String outDir, Path diagnostics) {
+    try {
+      FaultConverter converter = FaultConverter.create(log);
+      Map<String, List<Exporter>> ruptureTypes = new LinkedHashMap<>();
+      Map<Exporter, String> branches = new HashMap<>();
+      List<Exporter> reduced = new ArrayList<>();
+      for (SourceFile file : files) {
+        Exporter export = converter.read(file);
+        Matcher matcher = WUS_BRANCH.matcher(file.name);
+        if (matcher.matches()) {
+          branches.put(export, matcher.group(1));
+          ruptureTypes.computeIfAbsent(matcher.group(2), k -> new ArrayList<>()).add(export);
+        } else {
+          reduced.add(export);
+        }
+      }
+
+      log.info("");
+      log.info("Deformation model branch collapse: " + files.size() + " files");
+      List<String> lines = new ArrayList<>();
+      lines.add(DIAGNOSTIC_HEADER);
+      for (Entry<String, List<Exporter>> entry : ruptureTypes.entrySet()) {
+        List<Exporter> exports = entry.getValue();
+        for (Exporter export : exports) {
+          log.info(String.format("  before: %-40s sources=%-5s mfds=%s",
+              export.name, sourceCount(export), mfdCount(export)));
+        }
+        if (exports.size() > 1 && compatible(exports)) {
+          reduced.add(collapse(entry.getKey(), exports, branches, lines));
+        } else {
+          log.warning("Branches not collapsible: " + entry.getKey());
+          reduced.addAll(exports);
+        }
+      }
+
+      write(reduced, outDir);
+      Files.write(diagnostics, lines, StandardCharsets.UTF_8);
+      log.info("Branch geometry mismatches: " + (lines.size() - 1) + " rows in " + diagnostics);
+
+    } catch (Exception e) {
+      log.log(Level.SEVERE, "Branch collapse error: exiting", e);
+      System.exit(1);
+    }
+  }
+
+  private static boolean compatible(List<Exporter> exports) {
+    List<Object> key = compatibilityKey(exports.get(0));
+    for (Exporter export : exports) {
+      if (!compatibilityKey(export).equals(key)) return false;
+    }
+    return true;
+  }
+
+  private static Exporter collapse(String ruptureType, List<Exporter> exports,
+      Map<Exporter, String> branches, List<String> diagnostics) {
+
+    Exporter first = exports.get(0);
+    Exporter collapsed = new Exporter();
+    List<String> names = new ArrayList<>();
+    for (Exporter export : exports) {
+      names.add(export.name);
+    }
+    collapsed.name = Joiner.on(", ").join(names);
+    // e.g. 'Bird Model Full Rupture' to 'Collapsed Model Full Rupture'
+    collapsed.displayName = "Collapsed Model" +
+        first.displayName.substring(first.displayName.indexOf(" Model") + 6);
+    collapsed.region = first.region;
+    collapsed.magDat = first.magDat;
+    collapsed.hasAleatory = first.hasAleatory;
+
+    // name : branch : sources
+    Map<String, Map<Exporter, List<SourceData>>> faults = new LinkedHashMap<>();
+    for (Exporter export : exports) {
+      if (collapsed.refCH == null) collapsed.refCH = export.refCH;
+      if (collapsed.refGR == null) collapsed.refGR = export.refGR;
+      for (Entry<String, SourceData> entry : export.map.entries()) {
+        faults.computeIfAbsent(entry.getKey(), k -> new LinkedHashMap<>())
+            .computeIfAbsent(export, k -> new ArrayList<>())
+            .add(entry.getValue());
+      }
+    }
+
+    for (Entry<String, Map<Exporter, List<SourceData>>> fault : faults.entrySet()) {
+      Map<Exporter, List<SourceData>> faultBranches = fault.getValue();
+      List<Object> geometry = null;
+      boolean sameGeometry = true;
+      for (List<SourceData> sources : faultBranches.values()) {
+        for (SourceData sd : sources) {
+          if (geometry == null) geometry = geometryKey(sd);
+          sameGeometry &= geometry.equals(geometryKey(sd));
+        }
+      }
+
+      if (sameGeometry) {
+        SourceData source = null;
+        for (Entry<Exporter, List<SourceData>> branch : faultBranches.entrySet()) {
+          for (SourceData sd : branch.getValue()) {
+            if (source == null) source = copyGeometry(sd);
+            for (MFD_Data mfd : sd.mfds) {
+              source.mfds.add(scale(mfd, branch.getKey().weight));
+            }
+          }
+        }
+        collapsed.map.put(fault.getKey(), source);
+        continue;
+      }
+
+      for (Entry<Exporter, List<SourceData>> branch : faultBranches.entrySet()) {
+        String branchName = branches.get(branch.getKey());
+        SourceData source = null;
+        for (SourceData sd : branch.getValue()) {
+          if (source == null) {
+            source = copyGeometry(sd);
+            source.name += " [" + branchName + "]";
+            diagnostics.add(Joiner.on(',').join(
+                ruptureType,
+                "\"" + fault.getKey() + "\"",
+                branchName,
+                sd.dip,
+                sd.width,
+                sd.top,
+                sd.focalMech,
+                sd.locs.size()));
+          }
+          for (MFD_Data mfd : sd.mfds) {
+            source.mfds.add(scale(mfd, branch.getKey().weight));
+          }
+        }
+        collapsed.map.put(source.name, source);
+      }
+    }
+    return collapsed;
+  }
+
+  private void write(List<Exporter> exports, String outDir)
+      throws IOException, ParserConfigurationException, TransformerException {
+    for (Exporter export : exports) {
+      log.info(String.format("  after:  %-40s sources=%-5s mfds=%s",
+          export.displayName, sourceCount(export), reducedMfdCount(export)));
+      File outFile = FaultConverter.outFile(outDir, export.region, export.displayName);
+      Files.createDirectories(outFile.toPath().getParent());
+      export.writeXML(outFile);
+    }
+  }
+
+  private static List<Object> compatibilityKey(Exporter export) {
+    return Arrays.<Object> asList(
+        export.region,
+        export.magDat.toString(),
+        export.hasAleatory,
+        FaultConverter.getScalingModel(export.name));
+  }
+
+  private static List<Object> geometryKey(SourceData sd) {
+    return Arrays.<Object> asList(
+        sd.locs.toString(), sd.dip, sd.width, sd.top, sd.focalMech);
+  }
+
+  /*
+   * Partition compatible files into groups connected by shared geometries,
+   * preserving file order.
+   */
+  private static List<List<Exporter>> sharedGeometryComponents(List<Exporter> exports) {
+    int[] parents = new int[exports.size()];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = i;
+    }
+    Map<List<Object>, Integer> owners = new HashMap<>();
+    for (int i = 0; i < exports.size(); i++) {
+      for (SourceData sd : exports.get(i).map.values()) {
+        Integer owner = owners.putIfAbsent(geometryKey(sd), i);
+        if (owner != null) {
+          parents[root(parents, i)] = root(parents, owner);
+        }
+      }
+    }
+    Map<Integer, List<Exporter>> components = new LinkedHashMap<>();
+    for (int i = 0; i < exports.size(); i++) {
+      components.computeIfAbsent(root(parents, i), k -> new ArrayList<>())
+          .add(exports.get(i));
+    }
+    return new ArrayList<>(components.values());
+  }
+
+  private static int root(int[] parents, int i) {
+    while (parents[i] != i) {
+      parents[i] = parents[parents[i]];
+      i = parents[i];
+    }
+    return i;
+  }
+
+  private static Exporter merge(List<Exporter> exports) {
+    Exporter first = exports.get(0);
+    Exporter merged = new Exporter();
+    List<String> names = new ArrayList<>();
+    List<String> displayNames = new ArrayList<>();
+    for (Exporter export : exports) {
+      names.add(export.name);
+      displayNames.add(export.displayName);
+    }
+    merged.name = Joiner.on(", ").join(names);
+    merged.displayName = Joiner.on(" + ").join(displayNames);
+    merged.region = first.region;
+    merged.magDat = first.magDat;
+    merged.hasAleatory = first.hasAleatory;
+
+    Map<List<Object>, SourceData> sources = new LinkedHashMap<>();
+    for (Exporter export : exports) {
+      if (merged.refCH == null) merged.refCH = export.refCH;
+      if (merged.refGR == null) merged.refGR = export.refGR;
+      for (SourceData sd : export.map.values()) {
+        SourceData source = sources.computeIfAbsent(geometryKey(sd), k -> copyGeometry(sd));
+        for (MFD_Data mfd : sd.mfds) {
+          source.mfds.add(scale(mfd, export.weight));
+        }
+      }
+    }
+    for (SourceData source : sources.values()) {
+      checkState(!merged.map.containsKey(source.name),
+          "Source %s has different geometries in %s", source.name, merged.name);
+      merged.map.put(source.name, source);
+    }
+    return merged;
+  }
+
+  private static SourceData copyGeometry(SourceData sd) {
+    SourceData copy = new SourceData();
+    copy.file = sd.file;
+    copy.focalMech = sd.focalMech;
+    copy.nMag = sd.nMag;
+    copy.name = sd.name;
+    copy.id = sd.id;
+    copy.locs = sd.locs;
+    copy.dip = sd.dip;
+    copy.width = sd.width;
+    copy.top = sd.top;
+    return copy;
+  }
+
+  private static MFD_Data scale(MFD_Data mfd, double weight) {
+    if (mfd instanceof CH_Data) {
+      CH_Data ch = (CH_Data) mfd;
+      return CH_Data.create(ch.mag, ch.rate, ch.weight * weight, ch.floats);
+    }
+    GR_Data gr = ((GR_Data) mfd).copy();
+    gr.weight *= weight;
+    return gr;
+  }
+
+  private static int sourceCount(Exporter export) {
+    return export.map.keySet().size();
+  }
+
+  private static int mfdCount(Exporter export) {
+    int count = 0;
+    for (SourceData sd : export.map.values()) {
+      count += sd.mfds.size();
+    }
+    return count;
+  }
+
+  /* MFD count as written, i.e. after per-source MFD reduction. */
+  private static int reducedMfdCount(Exporter export) {
+    int count = 0;
+    for (String name : export.map.keySet()) {
+      List<MFD_Data> mfds = new ArrayList<>();
+      for (SourceData sd : export.map.get(name)) {
+        mfds.addAll(sd.mfds);
+      }
+      count += MfdReducer.reduce(mfds).size();
+    }
+    return count;
+  }
+
   // GOBBLEDEEGOOK, but useful
 
   static void rateTest() {
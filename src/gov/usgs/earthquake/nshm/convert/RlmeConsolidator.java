@@ -0,0 +1,173 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+import gov.usgs.earthquake.nshmp.util.Maths;
+
+/*
+ * Consolidates the single-magnitude branches of 2014 CEUS RLME grids, one
+ * file per mMax branch, into one source per zone. Each zone gets a dense
+ * integer id. Branch magnitudes and weights, and the weighted node rates
+ * (Σ weight·a), are accumulated in primitive buffers as branches are added.
+ * The combined source of a zone is the first branch added. Its file weight
+ * is the sum of the branch weights, and it gets one SINGLE MFD per
+ * magnitude, weighted by branch weight over file weight. Branches that
+ * share a magnitude are merged.
+ *
+ * Each zone is audited before its source is emitted. The rounded SINGLE MFD
+ * weights that are written must sum to 1. Every branch must share the a-grid
+ * of the combined source, so its rate at each node, scaled by the summed
+ * branch weights, equals the weighted sum of the branch rates. The total rate
+ * written, from the rounded file and MFD weights, must equal the total
+ * weighted input rate. Any failure throws an IllegalStateException.
+ *
+ * @author Peter Powers
+ */
+final class RlmeConsolidator {
+
+  private static final double WEIGHT_TOLERANCE = 1e-6;
+  private static final double RATE_TOLERANCE = 1e-8;
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private final List<GridSourceData2014> sources = new ArrayList<>();
+  private final List<double[]> mags = new ArrayList<>();
+  private final List<double[]> weights = new ArrayList<>();
+  private final List<double[]> rates = new ArrayList<>();
+  private int[] branchCounts = new int[8];
+  private int[] magCounts = new int[8];
+  private double[] inputRates = new double[8];
+
+  /*
+   * Add a single-magnitude branch of a zone. The branch weight is the
+   * weight of its CH_Data, which carries the original file weight.
+   */
+  void add(String zone, GridSourceData2014 branch) {
+    checkArgument(branch.chDat != null, "RLME branch %s is not single magnitude", branch.name);
+    Integer id = ids.get(zone);
+    if (id == null) {
+      id = names.size();
+      ids.put(zone, id);
+      names.add(zone);
+      sources.add(branch);
+      mags.add(new double[4]);
+      weights.add(new double[4]);
+      rates.add(new double[branch.aDat.length]);
+      if (id == branchCounts.length) {
+        branchCounts = Arrays.copyOf(branchCounts, id * 2);
+        magCounts = Arrays.copyOf(magCounts, id * 2);
+        inputRates = Arrays.copyOf(inputRates, id * 2);
+      }
+    }
+
+    double[] aDat = branch.aDat;
+    double[] zoneRates = rates.get(id);
+    checkState(aDat.length == zoneRates.length,
+        "RLME branch %s grid size differs from zone %s", branch.name, zone);
+    double weight = branch.chDat.weight;
+    double inputRate = 0.0;
+    for (int i = 0; i < aDat.length; i++) {
+      if (aDat[i] <= 0.0) continue;
+      zoneRates[i] += weight * aDat[i];
+      inputRate += aDat[i];
+    }
+    inputRates[id] += weight * inputRate;
+    branchCounts[id]++;
+
+    // merge branches of equal magnitude
+    double mag = branch.chDat.mag;
+    double[] zoneMags = mags.get(id);
+    double[] zoneWeights = weights.get(id);
+    int count = magCounts[id];
+    for (int j = 0; j < count; j++) {
+      if (zoneMags[j] == mag) {
+        zoneWeights[j] += weight;
+        return;
+      }
+    }
+    if (count == zoneMags.length) {
+      zoneMags = Arrays.copyOf(zoneMags, count * 2);
+      zoneWeights = Arrays.copyOf(zoneWeights, count * 2);
+      mags.set(id, zoneMags);
+      weights.set(id, zoneWeights);
+    }
+    zoneMags[count] = mag;
+    zoneWeights[count] = weight;
+    magCounts[id]++;
+  }
+
+  /*
+   * Audit each zone and emit its combined source, in the order in which
+   * zones were first added. Writes one audit line per zone to the log.
+   */
+  List<GridSourceData2014> consolidate(Logger log) {
+    List<GridSourceData2014> consolidated = new ArrayList<>(names.size());
+    for (int id = 0; id < names.size(); id++) {
+      String zone = names.get(id);
+      GridSourceData2014 srcDat = sources.get(id);
+      double[] zoneMags = mags.get(id);
+      double[] zoneWeights = weights.get(id);
+      int count = magCounts[id];
+
+      double weightTotal = 0.0;
+      for (int j = 0; j < count; j++) {
+        weightTotal += zoneWeights[j];
+      }
+      // summing induces rounding errors
+      double fileWeight = Maths.round(weightTotal, 8);
+      checkState(fileWeight > 0.0, "RLME zone %s has zero weight", zone);
+
+      Set<CH_Data> chDats = new TreeSet<>((ch1, ch2) -> Double.compare(ch1.mag, ch2.mag));
+      for (int j = 0; j < count; j++) {
+        double weight = Maths.round(zoneWeights[j] / fileWeight, 8);
+        chDats.add(CH_Data.create(zoneMags[j], 0.0, weight, false));
+      }
+      double weightSum = 0.0;
+      for (CH_Data chDat : chDats) {
+        weightSum += chDat.weight;
+      }
+      checkState(chDats.size() == count, "RLME zone %s has duplicate magnitudes", zone);
+      checkState(Math.abs(weightSum - 1.0) <= WEIGHT_TOLERANCE,
+          "RLME zone %s SINGLE weights sum to %s", zone, weightSum);
+
+      // every branch must use the a-grid of the combined source
+      double[] aDat = srcDat.aDat;
+      double[] zoneRates = rates.get(id);
+      double sourceRate = 0.0;
+      for (int i = 0; i < aDat.length; i++) {
+        double expected = (aDat[i] > 0.0) ? weightTotal * aDat[i] : 0.0;
+        checkState(fuzzyEquals(zoneRates[i], expected, RATE_TOLERANCE),
+            "RLME zone %s branch rates differ at node %s: %s ≠ %s",
+            zone, i, zoneRates[i], expected);
+        if (aDat[i] > 0.0) sourceRate += aDat[i];
+      }
+      double outputRate = fileWeight * weightSum * sourceRate;
+      checkState(fuzzyEquals(outputRate, inputRates[id], WEIGHT_TOLERANCE),
+          "RLME zone %s total rate %s ≠ input rate %s", zone, outputRate, inputRates[id]);
+
+      log.info(String.format(
+          "RLME zone %s: %s branches, %s mags, file weight %s, weight sum %s, total rate %.6g",
+          zone, branchCounts[id], count, fileWeight, weightSum, outputRate));
+
+      srcDat.weight = fileWeight;
+      srcDat.chDats = chDats;
+      consolidated.add(srcDat);
+    }
+    return consolidated;
+  }
+
+  private static boolean fuzzyEquals(double v1, double v2, double tolerance) {
+    return Math.abs(v1 - v2) <= tolerance * Math.max(Math.abs(v1), Math.abs(v2));
+  }
+
+}
@@ -0,0 +1,410 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.addComment;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
+import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ID;
+import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.NAME;
+import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.RATE;
+import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.WEIGHT;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.DEFAULT_MFDS;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.INCREMENTAL_MFD;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.SETTINGS;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE;
+import static gov.usgs.earthquake.nshmp.internal.SourceElement.SYSTEM_SOURCE_SET;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.common.primitives.Ints;
+
+import gov.usgs.earthquake.nshm.util.Utils;
+
+/**
+ * Splits the ruptures of a fault system into multiple {@code SYSTEM_SOURCE_SET}
+ * files that can be written, and later loaded, concurrently. Ruptures are
+ * assigned to shards either by contiguous index range or by equal-width
+ * magnitude band; ruptures retain their original relative order within each
+ * shard.
+ *
+ * <p>The equivalent unsharded file is written from the same ruptures
+ * concurrently with the shards. A CSV manifest is written alongside, listing
+ * for each shard the file name, rupture count, index range (INDEX mode) or
+ * magnitude band (MAGNITUDE mode), and total rate. Rate totals are computed
+ * exactly (as {@code BigDecimal}s) from the rates as formatted in the output
+ * XML. Once written, each shard and the unsharded file are read back; each
+ * shard must match its manifest entry, and the combined shard totals must
+ * match the unsharded file.
+ *
+ * @author Peter Powers
+ */
+public final class RuptureShards {
+
+  /** Manifest file name. */
+  public static final String MANIFEST = "fault_ruptures_shards.csv";
+
+  /* Matches CH_Data rate formatting. */
+  private static final String RATE_FORMAT = "%.8g";
+
+  private static final String INDEX_HEADER = "shard,file,count,minIndex,maxIndex,rate";
+  private static final String MAGNITUDE_HEADER = "shard,file,count,mLower,mUpper,rate";
+
+  private RuptureShards() {}
+
+  /** Rupture to shard assignment strategy. */
+  public static enum Mode {
+
+    /** Assign ruptures to shards by contiguous rupture index range. */
+    INDEX,
+
+    /** Assign ruptures to shards by equal-width magnitude band. */
+    MAGNITUDE;
+  }
+
+  /**
+   * Supplier of the rupture data to be sharded. Implementations must be safe
+   * for concurrent use by multiple shard writers.
+   */
+  public static interface Ruptures {
+
+    /** The number of ruptures. */
+    int size();
+
+    /**
+     * The magnitude of a rupture.
+     * @param index of rupture
+     */
+    double mag(int index);
+
+    /**
+     * The rate of a rupture, as it will be written to XML.
+     * @param index of rupture
+     */
+    double rate(int index);
+
+    /**
+     * Create and append the root {@code SYSTEM_SOURCE_SET} element, and any
+     * settings, to the supplied shard document.
+     * @param doc to append root element to
+     * @return the root element
+     */
+    Element createRoot(Document doc);
+
+    /**
+     * Append a rupture to the supplied root element.
+     * @param root element
+     * @param index of rupture to append
+     * @param previous index of the rupture most recently appended to the same
+     *        shard, or {@code -1} if {@code index} is the first
+     */
+    void appendTo(Element root, int index, int previous);
+  }
+
+  /**
+   * Create and append the root {@code SYSTEM_SOURCE_SET} element of a rupture
+   * file to the supplied document. Root attributes are followed by the
+   * supplied comments and by settings holding a single default MFD. Shared by
+   * the standard and sharded rupture writers.
+   *
+   * @param doc to append root element to
+   * @param name of source set
+   * @param weight of source set
+   * @param id of source set
+   * @param ref default MFD
+   * @param comments to add to root element
+   * @return the root element
+   */
+  public static Element createRoot(Document doc, String name, double weight, int id,
+      MFD_Data ref, String... comments) {
+    Element root = doc.createElement(SYSTEM_SOURCE_SET.toString());
+    doc.appendChild(root);
+    addAttribute(NAME, name, root);
+    addAttribute(WEIGHT, weight, root);
+    addAttribute(ID, id, root);
+    for (String comment : comments) {
+      addComment(comment, root);
+    }
+    Element settings = addElement(SETTINGS, root);
+    Element mfdRef = addElement(DEFAULT_MFDS, settings);
+    ref.appendTo(mfdRef, null);
+    return root;
+  }
+
+  /**
+   * Write sharded rupture files, the equivalent unsharded file, and a manifest
+   * to the supplied directory. Shard file names are derived from
+   * {@code baseName} (e.g. {@code fault_ruptures.xml} becomes
+   * {@code fault_ruptures_0.xml}, {@code fault_ruptures_1.xml}, ...).
+   *
+   * @param ruptures to write
+   * @param dir output directory
+   * @param baseName name of equivalent unsharded file
+   * @param mode of shard assignment
+   * @param count of shards
+   * @return the total rate of all ruptures
+   */
+  public static BigDecimal write(
+      Ruptures ruptures,
+      Path dir,
+      String baseName,
+      Mode mode,
+      int count) throws IOException {
+
+    checkArgument(count > 0, "Shard count [%s] must be positive", count);
+    int size = ruptures.size();
+    double[] bands = (mode == Mode.MAGNITUDE) ? magnitudeBands(ruptures, count) : null;
+    int[] shardIndices = (mode == Mode.INDEX)
+        ? indexShards(size, count)
+        : magnitudeShards(ruptures, bands);
+
+    List<List<Integer>> shardMembers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      shardMembers.add(new ArrayList<Integer>());
+    }
+    for (int i = 0; i < size; i++) {
+      shardMembers.get(shardIndices[i]).add(i);
+    }
+
+    String stem = baseName.substring(0, baseName.lastIndexOf('.'));
+    List<Callable<Shard>> tasks = new ArrayList<>(count + 1);
+    for (int i = 0; i < count; i++) {
+      String name = stem + "_" + i + ".xml";
+      tasks.add(new ShardWriter(
+          ruptures,
+          i,
+          dir.resolve(name),
+          Ints.toArray(shardMembers.get(i))));
+    }
+    int[] all = new int[size];
+    for (int i = 0; i < size; i++) {
+      all[i] = i;
+    }
+    tasks.add(new ShardWriter(ruptures, -1, dir.resolve(baseName), all));
+    List<Shard> written = Utils.invokeAll(tasks);
+    Shard unsharded = written.get(count);
+
+    // read files back and check them against what was written
+    BigDecimal total = BigDecimal.ZERO;
+    int shardCount = 0;
+    List<String> lines = new ArrayList<>(count + 2);
+    lines.add(mode == Mode.INDEX ? INDEX_HEADER : MAGNITUDE_HEADER);
+    for (Shard shard : written) {
+      Totals totals = read(dir.resolve(shard.file));
+      checkState(totals.count == shard.count && totals.rate.compareTo(shard.rate) == 0,
+          "%s contains %s ruptures with rate %s; expected %s with rate %s",
+          shard.file, totals.count, totals.rate.toPlainString(),
+          shard.count, shard.rate.toPlainString());
+      if (shard == unsharded) continue;
+      total = total.add(shard.rate);
+      shardCount += shard.count;
+      String range = (mode == Mode.INDEX)
+          ? (shard.count == 0) ? "," : shard.minIndex + "," + shard.maxIndex
+          : String.format("%.3f,%.3f", bands[shard.id], bands[shard.id + 1]);
+      lines.add(String.format("%s,%s,%s,%s,%s",
+          shard.id, shard.file, shard.count, range, shard.rate.toPlainString()));
+    }
+    checkState(shardCount == unsharded.count && total.compareTo(unsharded.rate) == 0,
+        "Shards contain %s ruptures with rate %s; %s contains %s with rate %s",
+        shardCount, total.toPlainString(), baseName, unsharded.count,
+        unsharded.rate.toPlainString());
+    lines.add(String.format("total,%s,%s,,,%s", baseName, size, total.toPlainString()));
+    Files.write(dir.resolve(MANIFEST), lines, UTF_8);
+
+    System.out.println("         Shards: " + count + " (" + mode + ")");
+    System.out.println("     Reconciled: " + dir.resolve(baseName));
+    return total;
+  }
+
+  /*
+   * The rupture count and exact rate total of a rupture file, read with a
+   * streaming parser. The rate of each SOURCE is the rate attribute of its
+   * MFD; ruptures without one have the reference rate of zero.
+   */
+  static Totals read(Path file) throws IOException {
+    final String sourceName = SOURCE.toString();
+    final String mfdName = INCREMENTAL_MFD.toString();
+    final String rateName = RATE.toString();
+    final Totals totals = new Totals();
+    DefaultHandler handler = new DefaultHandler() {
+
+      boolean inSource;
+
+      @Override
+      public void startElement(String uri, String localName, String qName,
+          Attributes atts) {
+        if (qName.equals(sourceName)) {
+          inSource = true;
+          totals.count++;
+        } else if (inSource && qName.equals(mfdName)) {
+          String rate = atts.getValue(rateName);
+          if (rate != null) totals.rate = totals.rate.add(new BigDecimal(rate.trim()));
+        }
+      }
+
+      @Override
+      public void endElement(String uri, String localName, String qName) {
+        if (qName.equals(sourceName)) inSource = false;
+      }
+    };
+    try (InputStream in = Files.newInputStream(file)) {
+      SAXParserFactory.newInstance().newSAXParser().parse(in, handler);
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException("Unable to read rupture file: " + file, e);
+    }
+    return totals;
+  }
+
+  /* Rupture count and rate total of a written file. */
+  static final class Totals {
+    int count;
+    BigDecimal rate = BigDecimal.ZERO;
+  }
+
+  /* The exact decimal value of a rate as formatted in XML. */
+  static BigDecimal writtenRate(double rate) {
+    return new BigDecimal(String.format(RATE_FORMAT, rate).trim());
+  }
+
+  /* Contiguous, near-equal size index ranges. */
+  private static int[] indexShards(int size, int count) {
+    int[] shards = new int[size];
+    for (int i = 0; i < count; i++) {
+      int start = (int) ((long) i * size / count);
+      int end = (int) ((long) (i + 1) * size / count);
+      for (int j = start; j < end; j++) {
+        shards[j] = i;
+      }
+    }
+    return shards;
+  }
+
+  /*
+   * Edges of equal-width magnitude bands spanning the rupture magnitude range;
+   * the last band includes its upper edge.
+   */
+  private static double[] magnitudeBands(Ruptures ruptures, int count) {
+    double mMin = Double.POSITIVE_INFINITY;
+    double mMax = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < ruptures.size(); i++) {
+      double m = ruptures.mag(i);
+      mMin = Math.min(mMin, m);
+      mMax = Math.max(mMax, m);
+    }
+    if (ruptures.size() == 0) mMin = mMax = 0.0;
+    double width = (mMax - mMin) / count;
+    double[] bands = new double[count + 1];
+    for (int i = 0; i < count; i++) {
+      bands[i] = mMin + i * width;
+    }
+    bands[count] = mMax;
+    return bands;
+  }
+
+  /* Assign ruptures to magnitude bands. */
+  private static int[] magnitudeShards(Ruptures ruptures, double[] bands) {
+    int size = ruptures.size();
+    int count = bands.length - 1;
+    double width = (bands[count] - bands[0]) / count;
+    int[] shards = new int[size];
+    if (width == 0.0) return shards;
+    for (int i = 0; i < size; i++) {
+      int band = (int) ((ruptures.mag(i) - bands[0]) / width);
+      shards[i] = Math.min(band, count - 1);
+    }
+    return shards;
+  }
+
+  /* Summary of a written shard. */
+  private static final class Shard {
+
+    final int id;
+    final String file;
+    final int count;
+    final int minIndex;
+    final int maxIndex;
+    final BigDecimal rate;
+
+    Shard(int id, String file, int count, int minIndex, int maxIndex, BigDecimal rate) {
+      this.id = id;
+      this.file = file;
+      this.count = count;
+      this.minIndex = minIndex;
+      this.maxIndex = maxIndex;
+      this.rate = rate;
+    }
+  }
+
+  private static final class ShardWriter implements Callable<Shard> {
+
+    private final Ruptures ruptures;
+    private final int id;
+    private final Path out;
+    private final int[] members;
+
+    ShardWriter(Ruptures ruptures, int id, Path out, int[] members) {
+      this.ruptures = ruptures;
+      this.id = id;
+      this.out = out;
+      this.members = members;
+    }
+
+    @Override
+    public Shard call() throws Exception {
+      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+      Document doc = dBuilder.newDocument();
+      Element root = ruptures.createRoot(doc);
+
+      BigDecimal rate = BigDecimal.ZERO;
+      int previous = -1;
+      for (int index : members) {
+        ruptures.appendTo(root, index, previous);
+        rate = rate.add(writtenRate(ruptures.rate(index)));
+        previous = index;
+      }
+
+      TransformerFactory transFactory = TransformerFactory.newInstance();
+      Transformer trans = transFactory.newTransformer();
+      trans.setOutputProperty(OutputKeys.INDENT, "yes");
+      trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+      DOMSource source = new DOMSource(doc);
+      StreamResult result = new StreamResult(out.toFile());
+      trans.transform(source, result);
+
+      int count = members.length;
+      return new Shard(
+          id,
+          out.getFileName().toString(),
+          count,
+          count == 0 ? -1 : members[0],
+          count == 0 ? -1 : members[count - 1],
+          rate);
+    }
+  }
+
+}
@@ -14,15 +14,18 @@ import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToDoubleList;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
 
 import gov.usgs.earthquake.nshm.util.FaultCode;
+import gov.usgs.earthquake.nshm.util.Utils;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -68,7 +71,7 @@ class SlabConverter2014 {
 
     try {
       log.info("Starting source: " + sf.name);
-      SlabSourceData2014 srcDat = new SlabSourceData2014();
+      final SlabSourceData2014 srcDat = new SlabSourceData2014();
       srcDat.name = sf.name;
       srcDat.id = -1;
       srcDat.weight = sf.weight;
@@ -157,14 +160,30 @@ class SlabConverter2014 {
       String outPath = dir + S + sf.region + S + sf.type + S;
       String outNameBase = sf.name.substring(0, sf.name.lastIndexOf('.'));
 
-      for (Map.Entry<Double, Range<Double>> entry : srcDat.lonDepthMap.entrySet()) {
-        srcDat.depth = entry.getKey();
-        srcDat.maxDepth = srcDat.depth + 8;
-        String outName = outNameBase + "_" + entry.getKey().intValue() + "km.xml";
-        File outFile = new File(outPath, outName);
+      // classify nodes into all depth bands at once, then write bands
+      List<Double> depths = new ArrayList<>(srcDat.lonDepthMap.keySet());
+      List<Range<Double>> lonRanges = new ArrayList<>();
+      for (Double depth : depths) {
+        lonRanges.add(srcDat.lonDepthMap.get(depth));
+      }
+      int[][] bandNodes = srcDat.partitionByLon(lonRanges);
+
+      List<Callable<Void>> writers = new ArrayList<>();
+      for (int band = 0; band < depths.size(); band++) {
+        final double depth = depths.get(band);
+        final int[] nodes = bandNodes[band];
+        String outName = outNameBase + "_" + (int) depth + "km.xml";
+        final File outFile = new File(outPath, outName);
         Files.createParentDirs(outFile);
-        srcDat.writeXML(outFile, entry.getValue());
+        writers.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            srcDat.writeXML(outFile, depth, nodes);
+            return null;
+          }
+        });
       }
+      Utils.invokeAll(writers);
 
     } catch (Exception e) {
       log.log(Level.SEVERE, "Grid parse error: exiting", e);
@@ -1,5 +1,6 @@
 package gov.usgs.earthquake.nshm.convert;
 
+import static com.google.common.base.Preconditions.checkState;
 import static gov.usgs.earthquake.nshmp.eq.fault.FocalMech.NORMAL;
 import static gov.usgs.earthquake.nshmp.eq.fault.FocalMech.REVERSE;
 import static gov.usgs.earthquake.nshmp.eq.fault.FocalMech.STRIKE_SLIP;
@@ -34,6 +35,7 @@ import gov.usgs.earthquake.nshm.util.Utils;
 
 import java.io.File;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -72,8 +74,6 @@ class SlabSourceData2014 {
   double weight;
 
   Map<Double, Range<Double>> lonDepthMap;
-  double depth;
-  double maxDepth;
   Map<FocalMech, Double> mechWtMap;
 
   GR_Data grDat;
@@ -104,18 +104,68 @@ class SlabSourceData2014 {
 
   private static final String LF = System.getProperty("line.separator");
 
+  // maximum depth of each band relative to its rupture top depth
+  private static final double MAX_DEPTH_OFFSET = 8.0;
+
   // @formatter:off
 
 	/**
-	 * Write grid data to XML.
+	 * Partition the non-zero nodes of the a-value grid into longitude bands in a
+	 * single pass. Region nodes are ordered by row with longitude varying
+	 * fastest, so band membership is resolved once per grid column rather than
+	 * once per node and band. Nodes outside all bands are dropped.
+	 * 
+	 * @param lonRanges longitude band ranges
+	 * @return the indices of the nodes in each band, in ascending order
+	 */
+	int[][] partitionByLon(List<Range<Double>> lonRanges) {
+		int nCols = (int) Math.rint((maxLon - minLon) / dLon) + 1;
+		checkState(aDat.length % nCols == 0, "Grid size %s not a multiple of %s columns",
+			aDat.length, nCols);
+		
+		// column band boundaries
+		int[] colBands = new int[nCols];
+		for (int col = 0; col < nCols; col++) {
+			double lon = region.locationForIndex(col).lon();
+			colBands[col] = -1;
+			for (int band = 0; band < lonRanges.size(); band++) {
+				if (lonRanges.get(band).contains(lon)) {
+					colBands[col] = band;
+					break;
+				}
+			}
+		}
+		
+		// count, then fill
+		int[] counts = new int[lonRanges.size()];
+		for (int i = 0; i < aDat.length; i++) {
+			int band = colBands[i % nCols];
+			if (aDat[i] > 0.0 && band >= 0) counts[band]++;
+		}
+		int[][] bandNodes = new int[counts.length][];
+		for (int band = 0; band < counts.length; band++) {
+			bandNodes[band] = new int[counts[band]];
+		}
+		int[] fill = new int[counts.length];
+		for (int i = 0; i < aDat.length; i++) {
+			int band = colBands[i % nCols];
+			if (aDat[i] > 0.0 && band >= 0) bandNodes[band][fill[band]++] = i;
+		}
+		return bandNodes;
+	}
+
+	/**
+	 * Write grid data for a single depth band to XML. This method does not
+	 * modify any state and may be called concurrently for different bands.
 	 * 
 	 * @param out file
-	 * @param lonRange 
+	 * @param depth of band
+	 * @param nodes indices of the nodes in band
 	 * @throws ParserConfigurationException
 	 * @throws TransformerConfigurationException
 	 * @throws TransformerException
 	 */
-	public void writeXML(File out, Range<Double> lonRange) throws
+	public void writeXML(File out, double depth, int[] nodes) throws
 			ParserConfigurationException,
 			TransformerConfigurationException, TransformerException {
 
@@ -133,7 +183,7 @@ class SlabSourceData2014 {
 		addComment(" Original source file: " + name + " ", root);
 		doc.appendChild(root);
 		
-		writeStandardGrid(root, lonRange);
+		writeStandardGrid(root, depth, nodes);
 		
 		// write the content into xml file
 		TransformerFactory transformerFactory = TransformerFactory.newInstance();
@@ -149,17 +199,14 @@ class SlabSourceData2014 {
 	}
 		
 	// standard grid without customizations requiring incremental MFDs
-	private void writeStandardGrid(Element root, Range<Double> lonRange) {
+	private void writeStandardGrid(Element root, double depth, int[] nodes) {
 		Element settings = addElement(SETTINGS, root);
 		Element mfdRef = addElement(DEFAULT_MFDS, settings);
 		grDat.appendTo(mfdRef, null);
-		addSourceProperties(settings);
+		addSourceProperties(settings, depth);
 		Element nodesElem = addElement(NODES, root);
-		for (int i=0; i<aDat.length; i++) {
-			double aVal = aDat[i];
-			if (aVal <= 0.0) continue;
+		for (int i : nodes) {
 			Location loc = region.locationForIndex(i);
-			if (!lonRange.contains(loc.lon())) continue;
 			Element nodeElem = addElement(NODE, nodesElem);
 			nodeElem.setTextContent(Utils.locToString(loc));
 			writeStandardMFDdata(nodeElem, i);
@@ -185,10 +232,10 @@ class SlabSourceData2014 {
 	}
 	
 	// source attribute settings
-	private void addSourceProperties(Element settings) {
+	private void addSourceProperties(Element settings, double depth) {
 		Element propsElem = addElement(SOURCE_PROPERTIES, settings);
 		addAttribute(MAG_DEPTH_MAP, magDepthDataToString(depth), propsElem);
-		addAttribute(MAX_DEPTH, maxDepth, propsElem);
+		addAttribute(MAX_DEPTH, depth + MAX_DEPTH_OFFSET, propsElem);
 		addAttribute(FOCAL_MECH_MAP, enumValueMapToString(mechWtMap), propsElem);
 		addAttribute(STRIKE, strike, propsElem);
 		addAttribute(RUPTURE_SCALING, rupScaling, propsElem);
@@ -1,15 +1,14 @@
 package gov.usgs.earthquake.nshm.convert;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static gov.usgs.earthquake.nshm.util.MFD_Type.GR;
 import static gov.usgs.earthquake.nshmp.eq.fault.surface.RuptureScaling.NSHM_SUB_GEOMAT_LENGTH;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addAttribute;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addComment;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.addElement;
 import static gov.usgs.earthquake.nshmp.internal.Parsing.readInt;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToDoubleList;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.splitToList;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.SPACE;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ID;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.NAME;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.RAKE;
@@ -23,10 +22,18 @@ import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE_PROPERTIES
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SUBDUCTION_SOURCE_SET;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.TRACE;
 
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
 import gov.usgs.earthquake.nshm.util.MFD_Type;
 import gov.usgs.earthquake.nshm.util.Utils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -53,9 +60,7 @@ import gov.usgs.earthquake.nshmp.mfd.Mfds;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -69,12 +74,24 @@ import com.google.common.io.Files;
 class SubductionConverter {
 
   private Logger log;
+  private double meshSpacing;
 
   private SubductionConverter() {}
 
   static SubductionConverter create(Logger log) {
+    return create(log, 0.0);
+  }
+
+  /*
+   * Create a converter that also writes a binary mesh sidecar (*.mesh) next to
+   * each XML file with the supplied node spacing (km); a spacing of 0 disables
+   * mesh output.
+   */
+  static SubductionConverter create(Logger log, double meshSpacing) {
+    checkArgument(meshSpacing >= 0.0, "Mesh spacing [%s] must be ≥ 0", meshSpacing);
     SubductionConverter sc = new SubductionConverter();
     sc.log = checkNotNull(log);
+    sc.meshSpacing = meshSpacing;
     return sc;
   }
 
@@ -98,20 +115,15 @@ class SubductionConverter {
 
         // collect data on source name line
         SourceData fDat = new SourceData();
-        List<String> srcInfo = splitToList(lines.next(), SPACE);
-        MFD_Type mfdType = MFD_Type.typeForID(Integer.valueOf(srcInfo.get(0)));
+        LineTokenizer srcInfo = LineTokenizer.of(lines.next());
+        MFD_Type mfdType = MFD_Type.typeForID(srcInfo.nextInt());
         fDat.file = sf;
-        fDat.focalMech = Utils.typeForID(Integer.valueOf(srcInfo.get(1)));
-
-        try {
-          // hazSUBXngatest: read a 3rd value for mfd count
-          fDat.nMag = Integer.valueOf(srcInfo.get(2));
-          fDat.name = Joiner.on(' ').join(Iterables.skip(srcInfo, 3));
-        } catch (NumberFormatException nfe) {
-          // hazSUBXnga: if can't read 3rd int, set name and nMag to 1
-          fDat.nMag = 1;
-          fDat.name = Joiner.on(' ').join(Iterables.skip(srcInfo, 2));
-        }
+        fDat.focalMech = Utils.typeForID(srcInfo.nextInt());
+
+        // hazSUBXngatest: read a 3rd value for mfd count
+        // hazSUBXnga: if no 3rd int, set nMag to 1
+        fDat.nMag = srcInfo.hasNextInt() ? srcInfo.nextInt() : 1;
+        fDat.name = srcInfo.remaining();
         fDat.id = -1;
 
         List<String> mfdSrcDat = Parsing.toLineList(lines, fDat.nMag);
@@ -127,11 +139,16 @@ class SubductionConverter {
       }
 
       String S = File.separator;
-      String outPath = dir + S + sf.region + S + sf.type + S +
-          sf.name.substring(0, sf.name.lastIndexOf('.')) + ".xml";
-      File outFile = new File(outPath);
+      String outBase = dir + S + sf.region + S + sf.type + S +
+          sf.name.substring(0, sf.name.lastIndexOf('.'));
+      File outFile = new File(outBase + ".xml");
       Files.createParentDirs(outFile);
-      export.writeXML(new File(outPath));
+      export.writeXML(outFile);
+      if (meshSpacing > 0.0) {
+        File meshFile = new File(outBase + ".mesh");
+        export.writeMesh(meshFile, meshSpacing);
+        log.info("  Mesh: " + meshFile.getName());
+      }
 
     } catch (Exception e) {
       log.log(Level.SEVERE, "Fault parse error: exiting", e);
@@ -161,10 +178,11 @@ class SubductionConverter {
           log(ss, MFD_Type.CH, ch.floats);
         }
       } else if (type == MFD_Type.CH) {
+        LineTokenizer chDat = LineTokenizer.of(line);
         CH_Data ch = CH_Data.create(
-            Parsing.readDouble(line, 0),
-            Parsing.readDouble(line, 1),
-            Parsing.readDouble(line, 2),
+            chDat.nextDouble(),
+            chDat.nextDouble(),
+            chDat.nextDouble(),
             false);
         ss.mfds.add(ch);
         log(ss, MFD_Type.CH, ch.floats);
@@ -182,16 +200,17 @@ class SubductionConverter {
 
   private static void generateTraces(Iterator<String> it, SourceData ss) {
     boolean reverse = ss.file.name.startsWith("sub");
-    ss.upperTrace = generateTrace(it, readInt(it.next(), 0), reverse);
-    ss.lowerTrace = generateTrace(it, readInt(it.next(), 0), reverse);
+    ss.upperTrace = generateTrace(it, LineTokenizer.of(it.next()).nextInt(), reverse);
+    ss.lowerTrace = generateTrace(it, LineTokenizer.of(it.next()).nextInt(), reverse);
   }
 
   private static LocationList generateTrace(Iterator<String> it, int size, boolean reverse) {
     List<String> traceDat = Parsing.toLineList(it, size);
     LocationList.Builder builder = LocationList.builder();
+    LineTokenizer loc = LineTokenizer.of("");
     for (String ptDat : traceDat) {
-      List<Double> latlon = splitToDoubleList(ptDat, SPACE);
-      builder.add(Location.create(latlon.get(0), latlon.get(1), latlon.get(2)));
+      loc.reset(ptDat);
+      builder.add(Location.create(loc.nextDouble(), loc.nextDouble(), loc.nextDouble()));
     }
     LocationList locs = builder.build();
     return reverse ? locs.reverse() : locs;
@@ -231,6 +250,9 @@ class SubductionConverter {
 
   static class Exporter {
 
+    private static final int MESH_MAGIC = 0x534d5348; // 'SMSH'
+    private static final int MESH_VERSION = 2;
+
     String file = null;
     double weight = 1.0;
     Map<String, SourceData> srcMap = Maps.newLinkedHashMap();
@@ -287,6 +309,56 @@ class SubductionConverter {
       trans.transform(source, result);
     }
 
+    /*
+     * Binary mesh sidecar (big-endian): magic, version (ints), spacing
+     * (double), source count (int), then for each source its name (modified
+     * UTF-8), trace checksum (long), and mesh (see SubductionMesh.writeTo()).
+     * The file is read back and checked against the source traces and meshes
+     * once written.
+     */
+    void writeMesh(File out, double spacing) throws IOException {
+      Map<String, SubductionMesh> meshes = Maps.newLinkedHashMap();
+      try (DataOutputStream dos = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(out)))) {
+        dos.writeInt(MESH_MAGIC);
+        dos.writeInt(MESH_VERSION);
+        dos.writeDouble(spacing);
+        dos.writeInt(srcMap.size());
+        for (Entry<String, SourceData> entry : srcMap.entrySet()) {
+          SourceData sDat = entry.getValue();
+          SubductionMesh mesh = SubductionMesh.create(sDat.upperTrace, sDat.lowerTrace, spacing);
+          meshes.put(entry.getKey(), mesh);
+          dos.writeUTF(entry.getKey());
+          dos.writeLong(SubductionMesh.checksum(sDat.upperTrace, sDat.lowerTrace));
+          mesh.writeTo(dos);
+        }
+      }
+      checkMesh(out, spacing, meshes);
+    }
+
+    private void checkMesh(File in, double spacing, Map<String, SubductionMesh> meshes)
+        throws IOException {
+      try (DataInputStream dis = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(in)))) {
+        checkState(dis.readInt() == MESH_MAGIC, "Bad mesh magic: %s", in);
+        checkState(dis.readInt() == MESH_VERSION, "Bad mesh version: %s", in);
+        checkState(dis.readDouble() == spacing, "Mesh spacing mismatch: %s", in);
+        checkState(dis.readInt() == srcMap.size(), "Mesh source count mismatch: %s", in);
+        for (Entry<String, SourceData> entry : srcMap.entrySet()) {
+          String name = dis.readUTF();
+          checkState(name.equals(entry.getKey()),
+              "Mesh source %s ≠ %s in %s", name, entry.getKey(), in);
+          SourceData sDat = entry.getValue();
+          checkState(
+              dis.readLong() == SubductionMesh.checksum(sDat.upperTrace, sDat.lowerTrace),
+              "Mesh trace checksum mismatch for %s in %s", name, in);
+          checkState(SubductionMesh.readFrom(dis).sameAs(meshes.get(name)),
+              "Mesh data mismatch for %s in %s", name, in);
+        }
+        checkState(dis.read() == -1, "Trailing mesh data: %s", in);
+      }
+    }
+
   }
 
 }
@@ -0,0 +1,186 @@
+package gov.usgs.earthquake.nshm.convert;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import gov.usgs.earthquake.nshmp.eq.fault.surface.ApproxGriddedSurface;
+import gov.usgs.earthquake.nshmp.eq.fault.surface.GriddedSurface;
+import gov.usgs.earthquake.nshmp.geo.Location;
+import gov.usgs.earthquake.nshmp.geo.LocationList;
+import gov.usgs.earthquake.nshmp.geo.Locations;
+
+/*
+ * Pre-discretized subduction interface surface. Nodes are those of the
+ * ApproxGriddedSurface built from the upper and lower traces at the supplied
+ * spacing, as at runtime, stored in row-major order with rows running
+ * down-dip. For each cell, the centroid is the mean of its corners, the area
+ * (km²) is the product of the mean along-strike and down-dip edge lengths,
+ * and the strike and dip (degrees) are those of the lines joining the
+ * midpoints of opposite edges.
+ *
+ * @author Peter Powers
+ */
+final class SubductionMesh {
+
+  final int rows;
+  final int cols;
+  final double[] lat;
+  final double[] lon;
+  final double[] depth;
+
+  final double[] cellLat;
+  final double[] cellLon;
+  final double[] cellDepth;
+  final double[] area;
+  final double[] strike;
+  final double[] dip;
+
+  private SubductionMesh(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    int nodes = rows * cols;
+    lat = new double[nodes];
+    lon = new double[nodes];
+    depth = new double[nodes];
+    int cells = (rows - 1) * (cols - 1);
+    cellLat = new double[cells];
+    cellLon = new double[cells];
+    cellDepth = new double[cells];
+    area = new double[cells];
+    strike = new double[cells];
+    dip = new double[cells];
+  }
+
+  static SubductionMesh create(LocationList upper, LocationList lower, double spacing) {
+    checkArgument(spacing > 0.0, "Spacing [%s] must be greater than 0", spacing);
+    GriddedSurface surface = new ApproxGriddedSurface(upper, lower, spacing);
+    int rows = surface.getNumRows();
+    int cols = surface.getNumCols();
+    checkArgument(rows > 1 && cols > 1, "Mesh [%s x %s] has no cells", rows, cols);
+    SubductionMesh mesh = new SubductionMesh(rows, cols);
+    Location[] nodes = new Location[rows * cols];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        int k = i * cols + j;
+        Location loc = surface.get(i, j);
+        nodes[k] = loc;
+        mesh.lat[k] = loc.lat();
+        mesh.lon[k] = loc.lon();
+        mesh.depth[k] = loc.depth();
+      }
+    }
+    mesh.computeCells(nodes);
+    return mesh;
+  }
+
+  private void computeCells(Location[] nodes) {
+    for (int i = 0; i < rows - 1; i++) {
+      for (int j = 0; j < cols - 1; j++) {
+        int n00 = i * cols + j;
+        int n01 = n00 + 1;
+        int n10 = n00 + cols;
+        int n11 = n10 + 1;
+        int cell = i * (cols - 1) + j;
+
+        cellLat[cell] = (lat[n00] + lat[n01] + lat[n10] + lat[n11]) / 4.0;
+        cellLon[cell] = (lon[n00] + lon[n01] + lon[n10] + lon[n11]) / 4.0;
+        cellDepth[cell] = (depth[n00] + depth[n01] + depth[n10] + depth[n11]) / 4.0;
+
+        double length = (Locations.linearDistance(nodes[n00], nodes[n01]) +
+            Locations.linearDistance(nodes[n10], nodes[n11])) / 2.0;
+        double width = (Locations.linearDistance(nodes[n00], nodes[n10]) +
+            Locations.linearDistance(nodes[n01], nodes[n11])) / 2.0;
+        area[cell] = length * width;
+
+        Location left = midpoint(n00, n10);
+        Location right = midpoint(n01, n11);
+        strike[cell] = Locations.azimuth(left, right);
+
+        Location top = midpoint(n00, n01);
+        Location bottom = midpoint(n10, n11);
+        dip[cell] = Math.toDegrees(Math.atan2(
+            Locations.vertDistance(top, bottom),
+            Locations.horzDistance(top, bottom)));
+      }
+    }
+  }
+
+  private Location midpoint(int n1, int n2) {
+    return Location.create(
+        (lat[n1] + lat[n2]) / 2.0,
+        (lon[n1] + lon[n2]) / 2.0,
+        (depth[n1] + depth[n2]) / 2.0);
+  }
+
+  /*
+   * Checksum of trace coordinates so that consumers can verify that a mesh
+   * corresponds to the traces in the XML.
+   */
+  static long checksum(LocationList upper, LocationList lower) {
+    CRC32 crc = new CRC32();
+    for (LocationList trace : new LocationList[] { upper, lower }) {
+      for (Location loc : trace) {
+        update(crc, loc.lat());
+        update(crc, loc.lon());
+        update(crc, loc.depth());
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static void update(CRC32 crc, double value) {
+    long bits = Double.doubleToLongBits(value);
+    for (int i = 56; i >= 0; i -= 8) {
+      crc.update((int) (bits >>> i));
+    }
+  }
+
+  /*
+   * Write node counts, node coordinates, cell centroids, and cell areas,
+   * strikes, and dips (big-endian ints and doubles).
+   */
+  void writeTo(DataOutputStream out) throws IOException {
+    out.writeInt(rows);
+    out.writeInt(cols);
+    for (double[] values : arrays()) {
+      for (double value : values) {
+        out.writeDouble(value);
+      }
+    }
+  }
+
+  /* Read a mesh written by writeTo(). */
+  static SubductionMesh readFrom(DataInputStream in) throws IOException {
+    int rows = in.readInt();
+    int cols = in.readInt();
+    checkArgument(rows > 1 && cols > 1, "Mesh [%s x %s] has no cells", rows, cols);
+    SubductionMesh mesh = new SubductionMesh(rows, cols);
+    for (double[] values : mesh.arrays()) {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = in.readDouble();
+      }
+    }
+    return mesh;
+  }
+
+  /* Whether the dimensions and all values of two meshes are identical. */
+  boolean sameAs(SubductionMesh other) {
+    if (rows != other.rows || cols != other.cols) return false;
+    double[][] values = arrays();
+    double[][] otherValues = other.arrays();
+    for (int i = 0; i < values.length; i++) {
+      if (!Arrays.equals(values[i], otherValues[i])) return false;
+    }
+    return true;
+  }
+
+  private double[][] arrays() {
+    return new double[][] { lat, lon, depth, cellLat, cellLon, cellDepth, area, strike, dip };
+  }
+
+}
@@ -4,7 +4,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import gov.usgs.earthquake.nshmp.function.EvenlyDiscretizedFunc;
 
-import gov.usgs.earthquake.mfd.GutenbergRichterMfd;
+import gov.usgs.earthquake.mfd.MfdKernels;
 
 /*
  * Adapted from UCERF3 GardnerKnopoffAftershockFilter to scale rates of gridded
@@ -23,9 +23,6 @@ class SystemAftershockFilter extends EvenlyDiscretizedFunc {
 
   private static SystemAftershockFilter instance;
 
-  GutenbergRichterMfd allGR;
-  GutenbergRichterMfd mainGR;
-
   static {
     instance = new SystemAftershockFilter(0.05, 100, 0.1);
   }
@@ -43,17 +40,21 @@ class SystemAftershockFilter extends EvenlyDiscretizedFunc {
   SystemAftershockFilter(double min, int num, double delta) {
     super(min, num, delta);
 
-    allGR = new GutenbergRichterMfd(min, num, delta);
-    mainGR = new GutenbergRichterMfd(min, num, delta);
+    MfdKernels.Axis axis = MfdKernels.axis(min, delta, num);
+    double[] allGR = new double[num];
+    double[] mainGR = new double[num];
+    int mag5index = getClosestXIndex(5.0 + delta / 2);
+
+    MfdKernels.gutenbergRichter(axis, 0, num - 1, 1.0, allGR);
+    MfdKernels.scaleToMomentRate(allGR, axis, 1.0);
+    MfdKernels.scaleToCumRate(allGR, axis, mag5index, 1.0);
 
-    allGR.setAllButTotCumRate(allGR.getMinX(), allGR.getMaxX(), 1.0, 1.0);
-    mainGR.setAllButTotCumRate(allGR.getMinX(), allGR.getMaxX(), 1.0, 0.8);
-    int mag5index = allGR.getClosestXIndex(5.0 + allGR.getDelta() / 2);
-    allGR.scaleToCumRate(mag5index, 1.0);
-    mainGR.scaleToCumRate(mag5index, FRACT_MAINSH_GTM5);
+    MfdKernels.gutenbergRichter(axis, 0, num - 1, 0.8, mainGR);
+    MfdKernels.scaleToMomentRate(mainGR, axis, 1.0);
+    MfdKernels.scaleToCumRate(mainGR, axis, mag5index, FRACT_MAINSH_GTM5);
 
     for (int i = 0; i < num; i++) {
-      double fract = mainGR.getY(i) / allGR.getY(i);
+      double fract = mainGR[i] / allGR[i];
       if (fract <= 1)
         set(i, fract);
       else
@@ -41,6 +41,10 @@ public class SystemConverter {
   private static final Path SRC_DIR = Paths.get("../../svn/OpenSHA/tmp/UC33/src/bravg");
   private static final Path OUT_DIR = Paths.get("models/UCERF3/");
 
+  /* Number of rupture file shards per solution; 0 writes a single file. */
+  private static final int RUPTURE_SHARDS = 0;
+  private static final RuptureShards.Mode SHARD_MODE = RuptureShards.Mode.INDEX;
+
   public static void main(String[] args) throws Exception {
     Path solDir = SRC_DIR.resolve("FM");
     // Path solDir = SRC_DIR.resolve("FM-DM");
@@ -54,7 +58,9 @@ public class SystemConverter {
 
   static void convertUC3(Path solDir) throws Exception {
 
-    SystemFaultConverter faultConverter = SystemFaultConverter.create();
+    SystemFaultConverter faultConverter = (RUPTURE_SHARDS > 0)
+        ? SystemFaultConverter.createSharded(SHARD_MODE, RUPTURE_SHARDS)
+        : SystemFaultConverter.create();
     SystemGridConverter gridConverter = SystemGridConverter.create();
 
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(solDir, "*.zip")) {
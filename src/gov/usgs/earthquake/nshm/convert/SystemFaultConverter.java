@@ -11,21 +11,16 @@ import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ASEIS;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DEPTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DIP;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.DIP_DIR;
-import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.ID;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.INDEX;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.INDICES;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.LOWER_DEPTH;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.NAME;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.RAKE;
-import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.WEIGHT;
 import static gov.usgs.earthquake.nshmp.internal.SourceAttribute.WIDTH;
-import static gov.usgs.earthquake.nshmp.internal.SourceElement.DEFAULT_MFDS;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.GEOMETRY;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SECTION;
-import static gov.usgs.earthquake.nshmp.internal.SourceElement.SETTINGS;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SOURCE;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.SYSTEM_FAULT_SECTIONS;
-import static gov.usgs.earthquake.nshmp.internal.SourceElement.SYSTEM_SOURCE_SET;
 import static gov.usgs.earthquake.nshmp.internal.SourceElement.TRACE;
 
 import java.io.File;
@@ -79,6 +74,12 @@ class SystemFaultConverter {
   static final String RATES_BIN_IN = "rates.bin";
   static final String RAKES_BIN_IN = "rakes.bin";
 
+  /* Reference MFD for rupture files; rupture MFDs only record differences. */
+  private static final CH_Data REF_CH = CH_Data.create(6.5, 0.0, 1.0, false);
+
+  private RuptureShards.Mode shardMode;
+  private int shardCount;
+
   private SystemFaultConverter() {};
 
   static SystemFaultConverter create() {
@@ -86,6 +87,19 @@ class SystemFaultConverter {
     return ifc;
   }
 
+  /*
+   * Creates a converter that splits ruptures across 'count' files according to
+   * the supplied shard mode. The unsharded fault_ruptures.xml and a manifest
+   * of shard ranges and rate totals are written alongside the shards.
+   */
+  static SystemFaultConverter createSharded(RuptureShards.Mode mode, int count) {
+    checkArgument(count > 0, "Shard count [%s] must be positive", count);
+    SystemFaultConverter ifc = new SystemFaultConverter();
+    ifc.shardMode = mode;
+    ifc.shardCount = count;
+    return ifc;
+  }
+
   void process(Path solPath, Path outDir, UC3_Filter filter)
       throws IOException, ParserConfigurationException, SAXException, TransformerException {
 
@@ -145,12 +159,14 @@ class SystemFaultConverter {
 
   /*
    * Consolidates rupture indices, mag, rate, and rake data into single XML
-   * file. Filters out ruptures with rate = 0.
+   * file, or into multiple shards if sharding is enabled. Filters out ruptures
+   * with rate = 0.
    */
-  private void processRuptures(List<List<Integer>> rupIndices, List<Double> mags,
-      List<Double> rates, List<Double> rakes, List<Double> dips, List<Double> widths,
-      List<Double> depths, String id, File out, double weight, UC3_Filter filter)
-      throws ParserConfigurationException, TransformerException {
+  private void processRuptures(final List<List<Integer>> rupIndices, final List<Double> mags,
+      final List<Double> rates, final List<Double> rakes, final List<Double> dips,
+      final List<Double> widths, final List<Double> depths, final String id, File out,
+      final double weight, UC3_Filter filter)
+      throws IOException, ParserConfigurationException, TransformerException {
 
     int rupSize = rupIndices.size();
     checkSize(depths, rupSize, "depths");
@@ -160,27 +176,9 @@ class SystemFaultConverter {
     checkSize(rates, rupSize, "rates");
     checkSize(widths, rupSize, "widths");
 
-    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-    Document doc = dBuilder.newDocument();
-    Element root = doc.createElement(SYSTEM_SOURCE_SET.toString());
-    doc.appendChild(root);
-    addAttribute(NAME, id, root);
-    addAttribute(WEIGHT, weight, root);
-    addAttribute(ID, -1, root);
-    Converter.addDisclaimer(root);
-    addComment(" Reference: " + id + " ", root);
-    addComment(" Description: " + nameToDescription(id), root);
-
-    // settings and defaults
-    Element settings = addElement(SETTINGS, root);
-    Element mfdRef = addElement(DEFAULT_MFDS, settings);
-    CH_Data refCH = CH_Data.create(6.5, 0.0, 1.0, false);
-    refCH.appendTo(mfdRef, null);
-
     int zeroRate = 0;
-    int nonZeroRate = 0;
     int uc3filter = 0;
+    final List<Integer> included = Lists.newArrayListWithCapacity(rupSize);
     for (int i = 0; i < rupIndices.size(); i++) {
       double rate = rates.get(i);
       if (rate == 0.0) {
@@ -191,25 +189,60 @@ class SystemFaultConverter {
         uc3filter++;
         continue;
       }
-      Element sourceElem = addElement(SOURCE, root);
-      double mag = mags.get(i);
-      double scaledRate = SystemAftershockFilter.scaleFaultRate(mag, rate);
-      CH_Data mfdData = CH_Data.create(mag, scaledRate, 1.0, false);
-      mfdData.appendTo(sourceElem, refCH);
-      Element geom = addElement(GEOMETRY, sourceElem);
-
-      addAttribute(DIP, dips.get(i), "%.1f", geom);
-      addAttribute(INDICES, Parsing.intListToRangeString(rupIndices.get(i)), geom);
-      addAttribute(WIDTH, widths.get(i), "%.3f", geom);
-      addAttribute(DEPTH, depths.get(i), "%.3f", geom);
-      addAttribute(RAKE, rakes.get(i), "%.1f", geom);
-      nonZeroRate++;
+      included.add(i);
     }
+    int nonZeroRate = included.size();
     System.out.println("      Zero rate: " + zeroRate);
     System.out.println("   UC3 Filtered: " + uc3filter);
     System.out.println("  Positive rate: " + nonZeroRate);
     checkState(zeroRate + nonZeroRate + uc3filter == rupIndices.size());
 
+    if (shardCount > 0) {
+      RuptureShards.Ruptures ruptures = new RuptureShards.Ruptures() {
+
+        @Override
+        public int size() {
+          return included.size();
+        }
+
+        @Override
+        public double mag(int index) {
+          return mags.get(included.get(index));
+        }
+
+        @Override
+        public double rate(int index) {
+          int i = included.get(index);
+          return SystemAftershockFilter.scaleFaultRate(mags.get(i), rates.get(i));
+        }
+
+        @Override
+        public Element createRoot(Document doc) {
+          return createRupturesRoot(doc, id, weight);
+        }
+
+        @Override
+        public void appendTo(Element root, int index, int previous) {
+          int i = included.get(index);
+          appendRupture(root, rupIndices.get(i), mags.get(i), rates.get(i), rakes.get(i),
+              dips.get(i), widths.get(i), depths.get(i));
+        }
+      };
+      RuptureShards.write(ruptures, out.toPath().getParent(), out.getName(), shardMode,
+          shardCount);
+      return;
+    }
+
+    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+    DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+    Document doc = dBuilder.newDocument();
+    Element root = createRupturesRoot(doc, id, weight);
+
+    for (int i : included) {
+      appendRupture(root, rupIndices.get(i), mags.get(i), rates.get(i), rakes.get(i),
+          dips.get(i), widths.get(i), depths.get(i));
+    }
+
     TransformerFactory transFactory = TransformerFactory.newInstance();
     Transformer trans = transFactory.newTransformer();
     trans.setOutputProperty(OutputKeys.INDENT, "yes");
@@ -219,6 +252,29 @@ class SystemFaultConverter {
     trans.transform(source, result);
   }
 
+  /* Rupture file root element, settings, and defaults. */
+  private static Element createRupturesRoot(Document doc, String id, double weight) {
+    return RuptureShards.createRoot(doc, id, weight, -1, REF_CH,
+        Converter.DISCLAIMER,
+        " Reference: " + id + " ",
+        " Description: " + nameToDescription(id));
+  }
+
+  private static void appendRupture(Element root, List<Integer> indices, double mag,
+      double rate, double rake, double dip, double width, double depth) {
+    Element sourceElem = addElement(SOURCE, root);
+    double scaledRate = SystemAftershockFilter.scaleFaultRate(mag, rate);
+    CH_Data mfdData = CH_Data.create(mag, scaledRate, 1.0, false);
+    mfdData.appendTo(sourceElem, REF_CH);
+    Element geom = addElement(GEOMETRY, sourceElem);
+
+    addAttribute(DIP, dip, "%.1f", geom);
+    addAttribute(INDICES, Parsing.intListToRangeString(indices), geom);
+    addAttribute(WIDTH, width, "%.3f", geom);
+    addAttribute(DEPTH, depth, "%.3f", geom);
+    addAttribute(RAKE, rake, "%.1f", geom);
+  }
+
   private static void checkSize(List<Double> data, int target, String id) {
     checkArgument(data.size() == target, "%s size mismatch [%s, %s]", id, target, data.size());
   }
@@ -1,5 +1,11 @@
 package gov.usgs.earthquake.nshm.convert;
 
+import static com.google.common.base.Preconditions.checkState;
+
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
+import gov.usgs.earthquake.nshm.util.Utils;
+
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
@@ -11,11 +17,13 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 import gov.usgs.earthquake.nshmp.internal.Parsing;
 import gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter;
@@ -24,8 +32,6 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
 import com.google.common.primitives.Doubles;
 
 /**
@@ -38,8 +44,29 @@ public class UcerfData {
   private static final Path SRC_DIR = Paths.get("tmp", "UC3", "src");
   private static final Path OUT_DIR = Paths.get("tmp", "UC3", "out");
 
+  /*
+   * Collects MFD files, assigns fault ids from the sorted list of unique fault
+   * names, and extracts and writes MFDs concurrently. Fault ids are independent
+   * of the order in which files are visited.
+   */
   static void process() throws IOException {
-    Files.walkFileTree(SRC_DIR, new MfdVisitor());
+    MfdVisitor visitor = new MfdVisitor();
+    Files.walkFileTree(SRC_DIR, visitor);
+    final Map<String, Integer> faultIds = createFaultIdMap(visitor.files);
+    final Path outDir = OUT_DIR.resolve("mfds");
+    List<Callable<Void>> tasks = new ArrayList<>(visitor.files.size());
+    for (final Path file : visitor.files) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          Map<String, List<Double>> ratesMap = readMfds(file);
+          Path out = outDir.resolve(createMfdFileName(file, faultIds));
+          writeMfds(out, ratesMap);
+          return null;
+        }
+      });
+    }
+    Utils.invokeAll(tasks);
   }
 
   static class MfdVisitor extends SimpleFileVisitor<Path> {
@@ -48,6 +75,8 @@ public class UcerfData {
     // FileSystems.getDefault().getPathMatcher("glob:*Lake_nucleation.txt");
     PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.txt");
 
+    final List<Path> files = new ArrayList<>();
+
     @Override
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
         throws IOException {
@@ -63,11 +92,7 @@ public class UcerfData {
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
         throws IOException {
-      if (matcher.matches(file.getFileName())) {
-        Map<String, List<Double>> ratesMap = readMfds(file);
-        Path out = OUT_DIR.resolve("mfds").resolve(createMfdFileName(file));
-        writeMfds(out, ratesMap);
-      }
+      if (matcher.matches(file.getFileName())) files.add(file);
       return FileVisitResult.CONTINUE;
     }
 
@@ -126,50 +151,78 @@ public class UcerfData {
     }
   }
 
-  static final Map<String, List<Double>> readMfds(Path mfdIn) throws IOException {
-    List<String> lines = Files.readAllLines(mfdIn, StandardCharsets.UTF_8);
-    Iterator<String> it = Iterators.filter(lines.iterator(), new MFDLineFilter());
+  private static final MFDLineFilter LINE_FILTER = new MFDLineFilter();
 
+  static final Map<String, List<Double>> readMfds(Path mfdIn) throws IOException {
     Builder<String, List<Double>> ratesMap = ImmutableMap.builder();
+    LineTokenizer xy = LineTokenizer.of("");
 
-    while (it.hasNext()) {
-      String dataSetIdLine = it.next();
-      int dataSetIdIndex = dataSetIdLine.indexOf('#') + 1;
-      int id = Integer.valueOf(dataSetIdLine.substring(dataSetIdIndex).trim());
+    try (BufferedReader reader = Files.newBufferedReader(mfdIn, StandardCharsets.UTF_8)) {
+      String dataSetIdLine;
+      while ((dataSetIdLine = nextLine(reader)) != null) {
+        int dataSetIdIndex = dataSetIdLine.indexOf('#') + 1;
+        int id = Integer.valueOf(dataSetIdLine.substring(dataSetIdIndex).trim());
 
-      int mfdSize = MAG_COUNT_MAP.get(id);
-      if (MFD_ID_MAP.containsKey(id)) {
-        List<Double> rates = new ArrayList<>();
+        int mfdSize = MAG_COUNT_MAP.get(id);
+        boolean keep = MFD_ID_MAP.containsKey(id);
+        double[] rates = new double[keep ? mfdSize : 0];
+        int rateCount = 0;
         for (int i = 0; i < mfdSize; i++) {
-          String mfdLine = it.next();
-          List<Double> xy = Parsing.splitToDoubleList(mfdLine, Delimiter.SPACE);
-          double mag = xy.get(0);
+          String mfdLine = nextLine(reader);
+          checkState(mfdLine != null, "Truncated data set %s in %s", id, mfdIn);
+          if (!keep) continue;
+          xy.reset(mfdLine);
+          double mag = xy.nextDouble();
           if (mag < 5.05 || mag > 8.55) continue;
-          rates.add(xy.get(1));
+          rates[rateCount++] = xy.nextDouble();
+        }
+        if (keep) {
+          ratesMap.put(MFD_ID_MAP.get(id), Doubles.asList(Arrays.copyOf(rates, rateCount)));
         }
-        ratesMap.put(MFD_ID_MAP.get(id), rates);
-      } else {
-        Iterators.advance(it, mfdSize);
       }
     }
     return ratesMap.build();
   }
 
+  /* Next line accepted by the line filter, or null at end of input. */
+  private static String nextLine(BufferedReader reader) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (LINE_FILTER.apply(line)) return line;
+    }
+    return null;
+  }
+
   // TODO this is going to need to come from a lookup table once
   // Jarry/Kathy have established IDs for UCERF3 parent fault sections
-  static Map<String, Integer> faultIdMap = new HashMap<>();
 
-  static final Path createMfdFileName(Path in) {
+  /* Fault ids, starting at 1000, in the sort order of the unique names. */
+  static Map<String, Integer> createFaultIdMap(List<Path> files) {
+    SortedSet<String> names = new TreeSet<>();
+    for (Path file : files) {
+      names.add(faultName(file.getFileName().toString()));
+    }
+    Builder<String, Integer> ids = ImmutableMap.builder();
+    int id = 1000;
+    for (String name : names) {
+      ids.put(name, id++);
+    }
+    return ids.build();
+  }
+
+  private static String faultName(String fileName) {
+    int typeStart = fileName.lastIndexOf('_');
+    return fileName.substring(0, typeStart).replace('_', ' ').trim();
+  }
+
+  static final Path createMfdFileName(Path in, Map<String, Integer> faultIds) {
     String nameIn = in.getFileName().toString();
 
     int typeStart = nameIn.lastIndexOf('_');
     String type = nameIn.substring(typeStart + 1, typeStart + 5);
 
-    String name = nameIn.substring(0, typeStart).replace('_', ' ').trim();
-    if (!faultIdMap.containsKey(name)) {
-      faultIdMap.put(name, 1000 + faultIdMap.size());
-    }
-    int index = faultIdMap.get(name);
+    String name = faultName(nameIn);
+    int index = faultIds.get(name);
     String fullName = index + "-" + name + "-" + type + ".csv";
     return Paths.get(fullName);
   }
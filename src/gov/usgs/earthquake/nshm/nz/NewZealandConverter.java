@@ -55,11 +55,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.EnumSet;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -78,11 +79,12 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multisets;
 import com.google.common.math.DoubleMath;
+import com.google.common.primitives.Doubles;
 
 /*
  * Convert New Zealand source files to NSHM compatible forecast.
@@ -199,9 +201,9 @@ class NewZealandConverter {
     // }
     // System.out.println(typeTest);
 
-    // loop types and depths
-    Set<NZ_SourceID> ids = EnumSet.of(NV, RV, SR, SS, NN);
-    Set<Double> depths = ImmutableSet.of(10.0, 30.0, 50.0, 70.0, 90.0);
+    // types and depths
+    List<NZ_SourceID> ids = ImmutableList.of(NV, RV, SR, SS, NN);
+    double[] depths = { 10.0, 30.0, 50.0, 70.0, 90.0 };
 
     /*
      * Split depths at 40km; below = slab, above = crustal | volcanic TODO this
@@ -210,53 +212,96 @@ class NewZealandConverter {
      * TODO are slab earthquakes really supposed to be RS
      */
 
-    int count = 0;
-    for (NZ_SourceID id : ids) {
-      for (double depth : depths) {
-
-        List<Location> locs = new ArrayList<>();
-        List<Double> aVals = new ArrayList<>();
-        List<Double> bVals = new ArrayList<>();
-        List<Double> mMaxs = new ArrayList<>();
-
-        for (int i = 0; i < parser.ids.size(); i++) {
-          if (parser.ids.get(i) != id) continue;
-          Location loc = parser.locs.get(i);
-          if (loc.depth() != depth) continue;
-          locs.add(loc);
-          aVals.add(parser.aVals.get(i));
-          bVals.add(parser.bVals.get(i));
-          mMaxs.add(parser.mMaxs.get(i));
-          count++;
-        }
+    /*
+     * Partition nodes into (id, depth) buckets in a single pass, then gather
+     * node indices by bucket (CSR layout; node order preserved within each
+     * bucket). Nodes with an unexpected id or depth are assigned no bucket and
+     * fail the completeness check below.
+     */
+    int depthCount = depths.length;
+    int bucketCount = ids.size() * depthCount;
+    int[] idIndices = new int[NZ_SourceID.values().length];
+    Arrays.fill(idIndices, -1);
+    for (int i = 0; i < ids.size(); i++) {
+      idIndices[ids.get(i).ordinal()] = i;
+    }
 
-        if (locs.isEmpty()) continue;
+    int gridSize = parser.gridSize;
+    int[] nodeBuckets = new int[gridSize];
+    int[] bucketOffsets = new int[bucketCount + 1];
+    for (int i = 0; i < gridSize; i++) {
+      int idIndex = idIndices[parser.ids[i]];
+      int depthIndex = Arrays.binarySearch(depths, parser.depths[i]);
+      int bucket = (idIndex < 0 || depthIndex < 0) ? -1 : idIndex * depthCount + depthIndex;
+      nodeBuckets[i] = bucket;
+      if (bucket >= 0) bucketOffsets[bucket + 1]++;
+    }
+    for (int i = 0; i < bucketCount; i++) {
+      bucketOffsets[i + 1] += bucketOffsets[i];
+    }
+    int count = bucketOffsets[bucketCount];
+    int[] bucketNodes = new int[count];
+    int[] cursors = Arrays.copyOf(bucketOffsets, bucketCount);
+    for (int i = 0; i < gridSize; i++) {
+      int bucket = nodeBuckets[i];
+      if (bucket >= 0) bucketNodes[cursors[bucket]++] = i;
+    }
 
-        GridExporter export = new GridExporter();
+    // ensure all lines in parser were processed
+    checkState(count == parser.gridSize, "Only processed %s of %s sources", count,
+        parser.gridSize);
+
+    List<Callable<Void>> tasks = new ArrayList<>();
+    Set<Path> gmmFiles = new HashSet<>();
+    for (int idIndex = 0; idIndex < ids.size(); idIndex++) {
+      NZ_SourceID id = ids.get(idIndex);
+      for (int depthIndex = 0; depthIndex < depthCount; depthIndex++) {
+        double depth = depths[depthIndex];
+        int bucket = idIndex * depthCount + depthIndex;
+        int start = bucketOffsets[bucket];
+        int size = bucketOffsets[bucket + 1] - start;
+
+        if (size == 0) continue;
+
+        final GridExporter export = new GridExporter();
         export.setName = createGridName(id, depth);
         export.setWeight = 1.0;
         export.id = id;
-        export.locs = locs;
-        export.aVals = aVals;
-        export.bVals = bVals;
-        export.mMaxs = mMaxs;
+        export.depth = depth;
+        export.lats = new double[size];
+        export.lons = new double[size];
+        export.aVals = new double[size];
+        export.bVals = new double[size];
+        export.mMaxs = new double[size];
+        for (int j = 0; j < size; j++) {
+          int node = bucketNodes[start + j];
+          export.lats[j] = parser.lats[node];
+          export.lons[j] = parser.lons[node];
+          export.aVals[j] = parser.aVals[node];
+          export.bVals[j] = parser.bVals[node];
+          export.mMaxs[j] = parser.mMaxs[node];
+        }
         export.mMin = NewZealandParser.M_MIN;
         Path outPath = createGridPath(id, depth);
-        Path out = outDir.resolve(outPath);
-        export.writeXML(out);
-
-        Path gmmPath = createGmmPath(id, depth);
-        out = outDir.resolve(gmmPath);
-        List<Map<Gmm, Double>> gmmMapList = getGmmMapList(id, depth);
-        List<Double> distanceList = getDistList(id, depth);
-        GMM_Export.writeFile(out, gmmMapList, distanceList, null, null);
-
+        final Path out = outDir.resolve(outPath);
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            export.writeXML(out);
+            return null;
+          }
+        });
+
+        // gmm files are shared by multiple grids; write each only once
+        Path gmmPath = outDir.resolve(createGmmPath(id, depth));
+        if (gmmFiles.add(gmmPath)) {
+          List<Map<Gmm, Double>> gmmMapList = getGmmMapList(id, depth);
+          List<Double> distanceList = getDistList(id, depth);
+          GMM_Export.writeFile(gmmPath, gmmMapList, distanceList, null, null);
+        }
       }
     }
-    // ensure all lines in parser were processed
-    checkState(count == parser.locs.size(), "Only processed %s of %s sources", count,
-        parser.locs.size());
-
+    Utils.invokeAll(tasks);
   }
 
   private static final double SLAB_DEPTH_CUT = 40.0;
@@ -292,8 +337,9 @@ class NewZealandConverter {
   }
 
   // returns the most common value
-  private static double findDefault(Collection<Double> values) {
-    return Multisets.copyHighestCountFirst(HashMultiset.create(values)).iterator().next();
+  private static double findDefault(double[] values) {
+    return Multisets.copyHighestCountFirst(HashMultiset.create(Doubles.asList(values)))
+        .iterator().next();
   }
 
   static class GridExporter {
@@ -301,10 +347,12 @@ class NewZealandConverter {
     String setName;
     double setWeight = 1.0;
     NZ_SourceID id;
-    List<Location> locs;
-    List<Double> aVals;
-    List<Double> bVals;
-    List<Double> mMaxs;
+    double depth;
+    double[] lats;
+    double[] lons;
+    double[] aVals;
+    double[] bVals;
+    double[] mMaxs;
     double mMin;
 
     public void writeXML(Path out) throws ParserConfigurationException, TransformerException,
@@ -321,7 +369,7 @@ class NewZealandConverter {
       addAttribute(WEIGHT, setWeight, root);
       doc.appendChild(root);
 
-      writeGrid(root, locs, aVals, bVals, mMaxs, mMin, id);
+      writeGrid(root, lats, lons, depth, aVals, bVals, mMaxs, mMin, id);
 
       // write the content into xml file
       TransformerFactory transformerFactory = TransformerFactory.newInstance();
@@ -339,8 +387,8 @@ class NewZealandConverter {
   }
 
   // standard grid without customizations requiring incremental MFDs
-  private static void writeGrid(Element root, List<Location> locs, List<Double> aVals,
-      List<Double> bVals, List<Double> mMaxs, double mMin, NZ_SourceID id) {
+  private static void writeGrid(Element root, double[] lats, double[] lons, double depth,
+      double[] aVals, double[] bVals, double[] mMaxs, double mMin, NZ_SourceID id) {
 
     // find most used bVal and mMax
     double bValDefault = findDefault(bVals);
@@ -351,13 +399,13 @@ class NewZealandConverter {
     Element settings = addElement(SETTINGS, root);
     Element mfdRef = addElement(DEFAULT_MFDS, settings);
     refGR.appendTo(mfdRef, null);
-    addSourceProperties(settings, id, locs.get(0).depth());
+    addSourceProperties(settings, id, depth);
     Element nodesElem = addElement(NODES, root);
 
-    for (int i = 0; i < locs.size(); i++) {
+    for (int i = 0; i < lats.length; i++) {
       Element nodeElem = addElement(NODE, nodesElem);
-      nodeElem.setTextContent(Utils.locToString(locs.get(i)));
-      GR_Data grDat = GR_Data.create(aVals.get(i), bVals.get(i), mMin, mMaxs.get(i), 0.1, 1.0);
+      nodeElem.setTextContent(Utils.locToString(Location.create(lats[i], lons[i], depth)));
+      GR_Data grDat = GR_Data.create(aVals[i], bVals[i], mMin, mMaxs[i], 0.1, 1.0);
       grDat.addAttributesToElement(nodeElem, refGR);
     }
   }
@@ -2,17 +2,19 @@ package gov.usgs.earthquake.nshm.nz;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import gov.usgs.earthquake.nshm.util.LineTokenizer;
 import gov.usgs.earthquake.nshmp.eq.Earthquakes;
 import gov.usgs.earthquake.nshmp.eq.TectonicSetting;
 import gov.usgs.earthquake.nshmp.eq.fault.Faults;
@@ -22,27 +24,23 @@ import gov.usgs.earthquake.nshmp.mfd.IncrementalMfd;
 import gov.usgs.earthquake.nshmp.mfd.Mfds;
 import gov.usgs.earthquake.nshmp.util.Maths;
 
-import com.google.common.base.Splitter;
-import com.google.common.base.StandardSystemProperty;
-import com.google.common.base.Throwables;
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
-import com.google.common.io.Resources;
-import com.google.common.primitives.Doubles;
 
 /*
- * Aggregates fault and gris source data from NZ input files.
+ * Aggregates fault and grid source data from NZ input files.
+ * 
+ * Both input files are streamed line by line and numeric fields are parsed
+ * directly from each line (see LineTokenizer) into primitive columns; no
+ * intermediate token lists or boxed values are created. Grid a-values and the
+ * M4 rate floor are computed in a single pass over the parsed columns.
  * 
  * @author Peter Powers
  */
 class NewZealandParser {
 
   private static final String PATH = "/Users/pmpowers/Documents/NSHMP/Forecasts/nz/code";
-  private static final Splitter SPLIT = Splitter.on(" ").omitEmptyStrings();
   private static final Path gridPath = Paths.get(PATH, "backgroundGrid.txt");
   private static final Path faultPath = Paths.get(PATH, "FUN1111.DAT");
 
@@ -55,26 +53,26 @@ class NewZealandParser {
 
   // fault data aggregators
   private List<String> names;
-  private List<Double> rakes;
-  private List<Double> mags;
-  private List<Double> recurs;
-  private List<Double> dips;
-  private List<Double> zTops;
-  private List<Double> zBots;
   private List<LocationList> traces;
+  private double[] rakes;
+  private double[] mags;
+  private double[] recurs;
+  private double[] dips;
+  private double[] zTops;
+  private double[] zBots;
 
   private ListMultimap<TectonicSetting, Integer> typeMap;
 
   private void initFaults() {
 
     names = Lists.newArrayList();
-    rakes = Lists.newArrayList();
-    mags = Lists.newArrayList();
-    recurs = Lists.newArrayList();
-    dips = Lists.newArrayList();
-    zTops = Lists.newArrayList();
-    zBots = Lists.newArrayList();
     traces = Lists.newArrayList();
+    DoubleColumn rakeCol = new DoubleColumn();
+    DoubleColumn magCol = new DoubleColumn();
+    DoubleColumn recurCol = new DoubleColumn();
+    DoubleColumn dipCol = new DoubleColumn();
+    DoubleColumn zTopCol = new DoubleColumn();
+    DoubleColumn zBotCol = new DoubleColumn();
 
     ImmutableListMultimap.Builder<TectonicSetting, Integer> typeMapBuilder =
         ImmutableListMultimap.builder();
@@ -94,71 +92,77 @@ class NewZealandParser {
 		//
 		// @formatter:on
 
-    // URL url = Resources.getResource(NewZealandParser.class,
-    // faultPath.toString());
-    List<String> lines = null;
-    try {
-      lines = Resources.readLines(faultPath.toUri().toURL(), StandardCharsets.UTF_8);
+    LineTokenizer fields = LineTokenizer.of("");
+    try (BufferedReader reader = Files.newBufferedReader(faultPath, StandardCharsets.UTF_8)) {
+
+      // skip a and b data
+      for (int i = 0; i < 3; i++) {
+        reader.readLine();
+      }
+
+      int index = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+
+        // get name and slip style
+        fields.reset(line);
+        String name = fields.next();
+        names.add(name);
+        NZ_SourceID id = NZ_SourceID.fromString(fields.next());
+        TectonicSetting tect = id.tectonicType();
+        typeMapBuilder.put(tect, index++);
+        rakeCol.add(id.rake());
+
+        // get section count
+        String sizeID = reader.readLine().trim();
+        int dIndex = sizeID.indexOf("D");
+        String sizeStr = sizeID.substring(0, dIndex);
+        int size = Integer.parseInt(sizeStr);
+
+        // get geometry data
+        fields.reset(reader.readLine());
+        dipCol.add(fields.nextDouble());
+        double dipDir = fields.nextDouble();
+        zBotCol.add(fields.nextDouble());
+        zTopCol.add(fields.nextDouble());
+
+        // trace endpoint specification -- mostly ignored
+        fields.reset(reader.readLine()).skip(8);
+        magCol.add(fields.nextDouble());
+        recurCol.add(fields.nextDouble());
+
+        // build trace
+        LocationList.Builder traceBuilder = LocationList.builder();
+        for (int i = 0; i < size; i++) {
+          fields.reset(reader.readLine());
+          traceBuilder.add(parseLocation(fields));
+          if (i == size - 1) {
+            traceBuilder.add(parseLocation(fields));
+          }
+        }
+        LocationList trace = traceBuilder.build();
+
+        // to adhere to the right hand rule, we need to check that the
+        // reported dip direction is correct (within 90 degrees of the
+        // dip direction derived from the trace as reported. If not,
+        // the trace is reversed. We do not preserve dip direction data
+        // after parsing.
+        traces.add(validateTrace(trace, dipDir));
+
+        // skip closing -1
+        reader.readLine();
+      }
     } catch (IOException ioe) {
       throw new RuntimeException(ioe);
     }
-    Iterator<String> lineIterator = Iterables.skip(lines, 3).iterator(); // skip
-                                                                         // a
-                                                                         // and
-                                                                         // b
-                                                                         // data
-
-    int index = 0;
-    while (lineIterator.hasNext()) {
-
-      // get name and slip style
-      List<String> nameSlip = SPLIT.splitToList(lineIterator.next());
-      String name = nameSlip.get(0);
-      names.add(name);
-      NZ_SourceID id = NZ_SourceID.fromString(nameSlip.get(1));
-      TectonicSetting tect = id.tectonicType();
-      typeMapBuilder.put(tect, index++);
-      rakes.add(id.rake());
-
-      // get section count
-      String sizeID = lineIterator.next().trim();
-      int dIndex = sizeID.indexOf("D");
-      String sizeStr = sizeID.substring(0, dIndex);
-      int size = Integer.parseInt(sizeStr);
-
-      // get geometry data
-      List<Double> geomValues = lineToDoubleList(lineIterator.next());
-      dips.add(geomValues.get(0));
-      double dipDir = geomValues.get(1);
-      zTops.add(geomValues.get(3));
-      zBots.add(geomValues.get(2));
-
-      // trace endpoint specification -- mostly ignored
-      List<Double> traceData = lineToDoubleList(lineIterator.next());
-      mags.add(traceData.get(8));
-      recurs.add(traceData.get(9));
-
-      // build trace
-      LocationList.Builder traceBuilder = LocationList.builder();
-      for (int i = 0; i < size; i++) {
-        String locLine = lineIterator.next();
-        traceBuilder.add(parseLocation(locLine));
-        if (i == size - 1) {
-          traceBuilder.add(parseLocation2(locLine));
-        }
-      }
-      LocationList trace = traceBuilder.build();
 
-      // to adhere to the right hand rule, we need to check that the
-      // reported dip direction is correct (within 90 degrees of the
-      // dip direction derived from the trace as reported. If not,
-      // the trace is reversed. We do not preserve dip direction data
-      // after parsing.
-      traces.add(validateTrace(trace, dipDir));
+    rakes = rakeCol.toArray();
+    mags = magCol.toArray();
+    recurs = recurCol.toArray();
+    dips = dipCol.toArray();
+    zTops = zTopCol.toArray();
+    zBots = zBotCol.toArray();
 
-      // skip closing -1
-      lineIterator.next();
-    }
     typeMap = typeMapBuilder.build();
     checkState(names.size() == typeMap.values().size());
   }
@@ -192,59 +196,47 @@ class NewZealandParser {
 
   List<FaultData> getSourceDataList(TectonicSetting tect) {
     List<FaultData> sourceDataList = new ArrayList<>();
-    for (Integer i : typeMap.get(tect)) {
-      double rate = 1.0 / recurs.get(i);
-      double width = (zBots.get(i) - zTops.get(i)) / Math.sin(dips.get(i) * Maths.TO_RADIANS);
-      FaultData faultData = new FaultData(names.get(i), mags.get(i), rate,
-          dips.get(i), zTops.get(i), width, rakes.get(i), traces.get(i));
+    for (int i : typeMap.get(tect)) {
+      double rate = 1.0 / recurs[i];
+      double width = (zBots[i] - zTops[i]) / Math.sin(dips[i] * Maths.TO_RADIANS);
+      FaultData faultData = new FaultData(names.get(i), mags[i], rate,
+          dips[i], zTops[i], width, rakes[i], traces.get(i));
       sourceDataList.add(faultData);
     }
     return sourceDataList;
   }
 
-  // All incoming lats need to be converted to southern hemi values.
-  private static Location parseLocation(String line) {
-    List<Double> vals = lineToDoubleList(line);
-    double lat = vals.get(0) + vals.get(1) / 60.0;
-    double lon = vals.get(2) + vals.get(3) / 60.0;
-    return Location.create(-lat, lon);
-  }
-
-  // reads the second location; only used at last section
-  private static Location parseLocation2(String line) {
-    List<Double> vals = lineToDoubleList(line);
-    double lat = vals.get(4) + vals.get(5) / 60.0;
-    double lon = vals.get(6) + vals.get(7) / 60.0;
+  // All incoming lats need to be converted to southern hemi values; reads the
+  // location from the next four degree-minute fields
+  private static Location parseLocation(LineTokenizer fields) {
+    double lat = fields.nextDouble() + fields.nextDouble() / 60.0;
+    double lon = fields.nextDouble() + fields.nextDouble() / 60.0;
     return Location.create(-lat, lon);
   }
 
-  // convert line of space delimited numbers to list of double values
-  private static List<Double> lineToDoubleList(String line) {
-    return FluentIterable.from(SPLIT.splitToList(line)).transform(Doubles.stringConverter())
-        .toList();
-  }
-
   static final double M_MIN = 5.05;
   static final double D_MAG = 0.1;
   static final double D_MAG_BY_2 = 0.05;
 
-  // grid data aggregators
-  List<Location> locs;
-  List<NZ_SourceID> ids;
-  // List<IncrementalMfd> mfds;
+  // grid data columns; one entry per grid node
+  int gridSize;
+  double[] lats;
+  double[] lons;
+  double[] depths;
+  double[] aVals; // incremental rate at M_MIN
+  double[] bVals;
+  double[] mMaxs;
+  byte[] ids; // NZ_SourceID ordinals
+
+  /* Source ID of the grid node at index. */
+  NZ_SourceID id(int index) {
+    return SOURCE_IDS[ids[index]];
+  }
 
-  List<Double> aVals;
-  List<Double> bVals;
-  List<Double> mMaxs;
+  private static final NZ_SourceID[] SOURCE_IDS = NZ_SourceID.values();
 
   private void initGrid() {
 
-    locs = Lists.newArrayList();
-    ids = Lists.newArrayList();
-    aVals = Lists.newArrayList();
-    bVals = Lists.newArrayList();
-    mMaxs = Lists.newArrayList();
-
     // @formatter:off
 		//
 		// 1          2          3        4    5   6    7  8    9    10     11      12
@@ -265,70 +257,93 @@ class NewZealandParser {
 		//
 		// @formatter:on
 
-    List<String> lines = null;
-    try {
-      lines = Resources.readLines(gridPath.toUri().toURL(), StandardCharsets.UTF_8);
+    DoubleColumn m4Col = new DoubleColumn();
+    DoubleColumn m5Col = new DoubleColumn();
+    DoubleColumn m6p5Col = new DoubleColumn();
+    DoubleColumn bCol = new DoubleColumn();
+    DoubleColumn mMaxCol = new DoubleColumn();
+    DoubleColumn latCol = new DoubleColumn();
+    DoubleColumn lonCol = new DoubleColumn();
+    DoubleColumn depthCol = new DoubleColumn();
+    ByteColumn idCol = new ByteColumn();
+
+    LineTokenizer fields = LineTokenizer.of("");
+    try (BufferedReader reader = Files.newBufferedReader(gridPath, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        fields.reset(line);
+        m4Col.add(fields.nextDouble());
+        m5Col.add(fields.nextDouble());
+        m6p5Col.add(fields.nextDouble());
+        bCol.add(fields.nextDouble());
+        mMaxCol.add(fields.nextDouble() - D_MAG_BY_2);
+        fields.skip(1);
+
+        // get source type id; use 'sr' for empty value, in which case
+        // location fields start one field earlier
+        NZ_SourceID id = NZ_SourceID.SR;
+        if (fields.hasNextAlpha()) {
+          id = NZ_SourceID.fromString(fields.next());
+        }
+        // TODO revisit this after consulting with Mark
+        // change RO's to SR's
+        if (id == NZ_SourceID.RO) id = NZ_SourceID.SR;
+        idCol.add((byte) id.ordinal());
+
+        // get location and depth
+        fields.skip(2);
+        latCol.add(-fields.nextDouble());
+        lonCol.add(fields.nextDouble());
+        depthCol.add(fields.nextDouble());
+      }
     } catch (IOException ioe) {
       throw new RuntimeException(ioe);
     }
 
-    for (String line : lines) {
-      List<String> values = SPLIT.splitToList(line);
-      double m4rate = Double.parseDouble(values.get(0));
-      double m5rate = Double.parseDouble(values.get(1));
-      double m6p5rate = Double.parseDouble(values.get(2));
-      double bVal = Double.parseDouble(values.get(3));
-      double mMax = Double.parseDouble(values.get(4)) - D_MAG_BY_2;
+    gridSize = latCol.size;
+    lats = latCol.toArray();
+    lons = lonCol.toArray();
+    depths = depthCol.toArray();
+    bVals = bCol.toArray();
+    mMaxs = mMaxCol.toArray();
+    ids = idCol.toArray();
+    aVals = aValues(m4Col.toArray(), m5Col.toArray(), m6p5Col.toArray(), bVals);
+  }
+
+  /*
+   * Computes incremental rates at M_MIN for all grid nodes from catalog rates
+   * and b-values. a-values (at M=0) are computed from the maximum likelihood
+   * formulation and scaled up where the rate at M=4 falls below M4_FLOOR. The
+   * catalog time-weighting terms depend only on b and are recomputed only when
+   * b changes between successive nodes.
+   */
+  private static double[] aValues(double[] m4rates, double[] m5rates, double[] m6p5rates,
+      double[] bVals) {
+
+    int size = bVals.length;
+    double[] aVals = new double[size];
+    double log10Floor = Math.log10(M4_FLOOR);
+    double bPrev = Double.NaN;
+    double tbSum = Double.NaN;
+    for (int i = 0; i < size; i++) {
+      double b = bVals[i];
+      if (b != bPrev) {
+        tbSum = timeWeightSum(b);
+        bPrev = b;
+      }
 
       // compute a-value
-      double aVal = aValueCalc(m4rate, m5rate, m6p5rate, bVal); // a @ M=0
+      double rateSum = m4rates[i] + m5rates[i] + m6p5rates[i];
+      double aVal = aValueCalc(rateSum, tbSum); // a @ M=0
 
       // if rate at M=4 < 0.0008, scale
-      // double m4test = MagUtils.gr_rate(aVal, bVal, 4.0);
-      double m4test = Mfds.grRate(aVal, bVal, 4.0);
+      double m4test = Mfds.grRate(aVal, b, 4.0);
       if (m4test < M4_FLOOR) {
-        double aScale = Math.log10(M4_FLOOR) - Math.log10(m4test);
-        aVal += aScale;
-      }
-
-      // build mfd
-      // double aValMinM = MagUtils.gr_rate(aVal, bVal, M_MIN);
-      double aValMinM = Mfds.grRate(aVal, bVal, M_MIN);
-      // int nMag = (int) ((mMax - M_MIN) / D_MAG + 1.4);
-      // GutenbergRichterMagFreqDist mfd = new
-      // GutenbergRichterMagFreqDist(M_MIN, nMag, D_MAG);
-      // mfd.setAllButTotMoRate(M_MIN, mMax, aValMinM, bVal);
-      // GutenbergRichterMfd mfd = Mfds.newGutenbergRichterMFD(M_MIN, D_MAG,
-      // nMag, bVal, aValMinM);
-      // mfds.add(mfd);
-
-      aVals.add(aValMinM);
-      bVals.add(bVal);
-      mMaxs.add(mMax);
-
-      // get source type id; ise 'sr' for empty value and offset indexing
-      // KLUDGY -- probably should just use substrings to extract values
-      NZ_SourceID id = NZ_SourceID.SR;
-      int offset = 0;
-      try {
-        id = NZ_SourceID.fromString(values.get(6));
-      } catch (IllegalArgumentException iae) {
-        offset = -1;
+        aVal += log10Floor - Math.log10(m4test);
       }
-      // TODO revisit this after consulting with Mark
-      // change RO's to SR's
-      if (id == NZ_SourceID.RO) id = NZ_SourceID.SR;
-
-      ids.add(id);
-
-      // get location and depth
-      double lat = -Double.parseDouble(values.get(9 + offset));
-      double lon = Double.parseDouble(values.get(10 + offset));
-      double depth = Double.parseDouble(values.get(11 + offset));
-      Location loc = Location.create(lat, lon, depth);
-      locs.add(loc);
-
+      aVals[i] = Mfds.grRate(aVal, b, M_MIN);
     }
+    return aVals;
   }
 
   // List<ProbEqkSource> getGridSources(double duration) {
@@ -351,19 +366,22 @@ class NewZealandParser {
   private static final double CT_M5 = 25; // 1963-1940 (inclusive) so +1
   private static final double CT_M6P5 = 101; // 1939-1840 (inclusive) so +1
 
+  /* Catalog-duration weighted 10^(-bM) terms for each catalog mMin. */
+  private static double timeWeightSum(double b) {
+    double tb1 = CT_M4 * Math.pow(10, 4.0 * -b);
+    double tb2 = CT_M5 * Math.pow(10, 5.0 * -b);
+    double tb3 = CT_M6P5 * Math.pow(10, 6.5 * -b);
+    return tb1 + tb2 + tb3;
+  }
+
   /*
    * Maximum likelihood a-value calculation for multiple catalogs with variable
    * mMin
    */
-  private static double aValueCalc(double rate_m4, double rate_m5, double rate_m6p5, double b) {
-    // a value formulation
-    double tb1 = CT_M4 * Math.pow(10, 4.0 * -b);
-    double tb2 = CT_M5 * Math.pow(10, 5.0 * -b);
-    double tb3 = CT_M6P5 * Math.pow(10, 6.5 * -b);
-    double rateSum = rate_m4 + rate_m5 + rate_m6p5;
+  private static double aValueCalc(double rateSum, double timeWeightSum) {
     // if rateSum = 0.0, then the method will return -Infinity, so we return
     // a very small a-value instead (-30)
-    return rateSum <= 0.0 ? -30 : Math.log10(rateSum / (tb1 + tb2 + tb3));
+    return rateSum <= 0.0 ? -30 : Math.log10(rateSum / timeWeightSum);
   }
 
   /*
@@ -379,14 +397,44 @@ class NewZealandParser {
     return (angle > 90.0) ? trace.reverse() : trace;
   }
 
+  /* Growable primitive columns. */
+  private static final class DoubleColumn {
+
+    double[] data = new double[1024];
+    int size;
+
+    void add(double value) {
+      if (size == data.length) data = Arrays.copyOf(data, size * 2);
+      data[size++] = value;
+    }
+
+    double[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+  }
+
+  private static final class ByteColumn {
+
+    byte[] data = new byte[1024];
+    int size;
+
+    void add(byte value) {
+      if (size == data.length) data = Arrays.copyOf(data, size * 2);
+      data[size++] = value;
+    }
+
+    byte[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+  }
+
   public static void main(String[] args) throws IOException {
     // loadFaultSources();
     NewZealandParser parser = new NewZealandParser();
-    // List<ProbEqkSource> sources = parser.getGridSources(1.0);
-    // for (ProbEqkSource src : sources) {
-    // System.out.println(src);
-    // }
-    Set<NZ_SourceID> idSet = EnumSet.copyOf(parser.ids);
+    Set<NZ_SourceID> idSet = EnumSet.noneOf(NZ_SourceID.class);
+    for (int i = 0; i < parser.gridSize; i++) {
+      idSet.add(parser.id(i));
+    }
     System.out.println(idSet);
   }
 }
@@ -0,0 +1,216 @@
+package gov.usgs.earthquake.nshm.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/*
+ * Cursor over the whitespace delimited fields of a line of a text input
+ * file (e.g. NSHMP, UCERF, or NZ source files). Fields are parsed in place,
+ * without splitting the line or boxing values, and optional trailing fields
+ * are detected with hasNext() rather than by catching exceptions. A
+ * tokenizer may be reset() and reused for many lines; it is not thread-safe.
+ *
+ * Doubles with at most 15 significant digits and a small decimal exponent are
+ * parsed directly, which is exact because both the digits and the power of 10
+ * are exactly representable and combined in a single rounding step; all other
+ * values are delegated to Double.parseDouble().
+ *
+ * @author Peter Powers
+ */
+public final class LineTokenizer {
+
+  private static final double[] POW_10 = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  private static final int MAX_DIGITS = 15;
+
+  private CharSequence line;
+  private int position;
+  private int end;
+
+  private LineTokenizer(CharSequence line) {
+    reset(line);
+  }
+
+  public static LineTokenizer of(CharSequence line) {
+    return new LineTokenizer(line);
+  }
+
+  /* Point this tokenizer at the start of a new line. */
+  public LineTokenizer reset(CharSequence line) {
+    this.line = line;
+    this.position = 0;
+    this.end = line.length();
+    return this;
+  }
+
+  /* Whether another field is present. */
+  public boolean hasNext() {
+    skipWhitespace();
+    return position < end;
+  }
+
+  /* Whether another field is present and is an integer. */
+  public boolean hasNextInt() {
+    if (!hasNext()) return false;
+    int i = position;
+    char c = line.charAt(i);
+    if (c == '-' || c == '+') i++;
+    int digitStart = i;
+    while (i < end && !isWhitespace(line.charAt(i))) {
+      c = line.charAt(i++);
+      if (c < '0' || c > '9') return false;
+    }
+    return i > digitStart;
+  }
+
+  /* Whether another field is present and starts with a letter. */
+  public boolean hasNextAlpha() {
+    return hasNext() && Character.isLetter(line.charAt(position));
+  }
+
+  public String next() {
+    int start = tokenStart();
+    return line.subSequence(start, position).toString();
+  }
+
+  /* Skip the supplied number of fields. */
+  public LineTokenizer skip(int count) {
+    for (int i = 0; i < count; i++) {
+      tokenStart();
+    }
+    return this;
+  }
+
+  public int nextInt() {
+    int start = tokenStart();
+    int i = start;
+    boolean negative = false;
+    char c = line.charAt(i);
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      i++;
+    }
+    if (i == position) throw numberFormat(start);
+    long value = 0;
+    for (; i < position; i++) {
+      c = line.charAt(i);
+      if (c < '0' || c > '9') throw numberFormat(start);
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE + 1L) throw numberFormat(start);
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE) throw numberFormat(start);
+    return (int) value;
+  }
+
+  public double nextDouble() {
+    int start = tokenStart();
+    int i = start;
+    boolean negative = false;
+    char c = line.charAt(i);
+    if (c == '-' || c == '+') {
+      negative = c == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean anyDigit = false;
+    boolean fraction = false;
+    for (; i < position; i++) {
+      c = line.charAt(i);
+      if (c >= '0' && c <= '9') {
+        anyDigit = true;
+        if (fraction) fractionDigits++;
+        if (mantissa == 0 && c == '0') continue;
+        if (++digits > MAX_DIGITS) return parseSlow(start);
+        mantissa = mantissa * 10 + (c - '0');
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else {
+        break;
+      }
+    }
+    if (!anyDigit) return parseSlow(start);
+
+    int exponent = 0;
+    if (i < position) {
+      c = line.charAt(i++);
+      if ((c != 'e' && c != 'E') || i == position) return parseSlow(start);
+      boolean negativeExp = false;
+      c = line.charAt(i);
+      if (c == '-' || c == '+') {
+        negativeExp = c == '-';
+        i++;
+      }
+      if (i == position) return parseSlow(start);
+      for (; i < position; i++) {
+        c = line.charAt(i);
+        if (c < '0' || c > '9' || exponent > 1000) return parseSlow(start);
+        exponent = exponent * 10 + (c - '0');
+      }
+      if (negativeExp) exponent = -exponent;
+    }
+
+    int scale = exponent - fractionDigits;
+    if (scale < -22 || scale > 22) return parseSlow(start);
+    double value = (scale < 0)
+        ? mantissa / POW_10[-scale]
+        : mantissa * POW_10[scale];
+    return negative ? -value : value;
+  }
+
+  /* The remaining fields as doubles. */
+  public double[] toDoubleArray() {
+    double[] values = new double[8];
+    int count = 0;
+    while (hasNext()) {
+      if (count == values.length) values = Arrays.copyOf(values, count * 2);
+      values[count++] = nextDouble();
+    }
+    return Arrays.copyOf(values, count);
+  }
+
+  /* The remaining fields joined with single spaces. */
+  public String remaining() {
+    StringBuilder sb = new StringBuilder();
+    while (hasNext()) {
+      if (sb.length() > 0) sb.append(' ');
+      int start = tokenStart();
+      sb.append(line, start, position);
+    }
+    return sb.toString();
+  }
+
+  /* Advance past the next field and return its start index. */
+  private int tokenStart() {
+    if (!hasNext()) throw new NoSuchElementException("No more fields: " + line);
+    int start = position;
+    while (position < end && !isWhitespace(line.charAt(position))) {
+      position++;
+    }
+    return start;
+  }
+
+  private void skipWhitespace() {
+    while (position < end && isWhitespace(line.charAt(position))) {
+      position++;
+    }
+  }
+
+  private double parseSlow(int start) {
+    return Double.parseDouble(line.subSequence(start, position).toString());
+  }
+
+  private NumberFormatException numberFormat(int start) {
+    return new NumberFormatException(
+        "For input string: \"" + line.subSequence(start, position) + "\"");
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c <= ' ';
+  }
+
+}
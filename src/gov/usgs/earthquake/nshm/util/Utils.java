@@ -8,6 +8,11 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
@@ -675,6 +680,42 @@ public class Utils {
         GriddedRegion.ANCHOR_0_0);
   }
 
+  /**
+   * Runs the supplied tasks on a fixed thread pool sized to the lesser of the
+   * task count and the number of available processors. Results are returned
+   * in task order. If any task fails, its cause is rethrown: unchecked
+   * exceptions and {@code IOException}s as is, and any other checked exception
+   * wrapped in an {@code IOException}.
+   * 
+   * @param tasks to run
+   * @return the results of each task, in order
+   * @throws IOException if any task fails or the calling thread is interrupted
+   */
+  public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws IOException {
+    if (tasks.isEmpty()) return new ArrayList<>();
+    int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService ex = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<T>> futures = ex.invokeAll(tasks);
+      List<T> results = new ArrayList<>(futures.size());
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for tasks", ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      if (cause instanceof IOException) throw (IOException) cause;
+      throw new IOException(cause);
+    } finally {
+      ex.shutdownNow();
+    }
+  }
+
   private static DecimalFormat dFmt = new DecimalFormat("0.0##");
 
   /*
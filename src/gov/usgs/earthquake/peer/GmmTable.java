@@ -0,0 +1,283 @@
+package gov.usgs.earthquake.peer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.COMMA;
+
+import gov.usgs.earthquake.nshmp.gmm.Imt;
+import gov.usgs.earthquake.nshmp.internal.Parsing;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Doubles;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Median ground motion table for a single model with fixed distance and
+ * magnitude axes. The values for all Imts are stored in one flat array,
+ * ordered by Imt, then distance, then magnitude. Tables may be written as
+ * text (*.dat) or as a compact binary file that is memory mapped when read.
+ *
+ * <p>Median values are either linear ground motions or their natural logs;
+ * see {@link Units}. Units are recorded in the binary header so that tables
+ * are interpolated correctly when read. The natural logs of the medians, which
+ * are what is interpolated, are kept alongside the medians so that they are
+ * computed once per value rather than once per interpolation.
+ *
+ * <p>Binary layout (big-endian): magic, version, units, Imt count, distance
+ * count, magnitude count (ints); Imt names (modified UTF-8); distances,
+ * magnitudes, and medians (doubles).
+ *
+ * @author Peter Powers
+ */
+final class GmmTable {
+
+  private static final int MAGIC = 0x474d4d54; // 'GMMT'
+  private static final int VERSION = 2;
+
+  /* Units of the median values of a table. */
+  enum Units {
+    /* Ground motion in g (or cm/s for PGV). */
+    LINEAR,
+    /* Natural log of ground motion. */
+    LN;
+  }
+
+  final Units units;
+  final List<Imt> imts;
+  final double[] r;
+  final double[] m;
+  private final DoubleBuffer medians;
+  private final double[] lnMedians;
+
+  private GmmTable(Units units, List<Imt> imts, double[] r, double[] m, DoubleBuffer medians) {
+    this.units = units;
+    this.imts = imts;
+    this.r = r;
+    this.m = m;
+    this.medians = medians;
+    lnMedians = new double[medians.capacity()];
+    for (int i = 0; i < lnMedians.length; i++) {
+      lnMedians[i] = toLn(medians.get(i));
+    }
+  }
+
+  /*
+   * Create an empty (NaN valued) table. Distance and magnitude axes must be
+   * increasing and have at least 2 values.
+   */
+  static GmmTable create(Units units, List<Imt> imts, List<Double> r, List<Double> m) {
+    checkAxis(r, "Distance");
+    checkAxis(m, "Magnitude");
+    double[] medians = new double[imts.size() * r.size() * m.size()];
+    Arrays.fill(medians, Double.NaN);
+    return new GmmTable(
+        units,
+        ImmutableList.copyOf(imts),
+        Doubles.toArray(r),
+        Doubles.toArray(m),
+        DoubleBuffer.wrap(medians));
+  }
+
+  private static void checkAxis(List<Double> axis, String name) {
+    checkArgument(axis.size() > 1, "%s axis must have at least 2 values", name);
+    for (int i = 1; i < axis.size(); i++) {
+      checkArgument(axis.get(i) > axis.get(i - 1), "%s axis is not increasing: %s", name, axis);
+    }
+  }
+
+  private int index(int imtIndex, int rIndex, int mIndex) {
+    return (imtIndex * r.length + rIndex) * m.length + mIndex;
+  }
+
+  double get(int imtIndex, int rIndex, int mIndex) {
+    return medians.get(index(imtIndex, rIndex, mIndex));
+  }
+
+  /* The index of an Imt in this table, for use with interpolate(). */
+  int imtIndex(Imt imt) {
+    int imtIndex = imts.indexOf(imt);
+    checkArgument(imtIndex >= 0, "Imt %s not in table", imt);
+    return imtIndex;
+  }
+
+  /*
+   * Load the median values for an Imt from a 'm,r,value' csv file with a
+   * single header line. Each value is passed through the supplied transform,
+   * which must yield values in the units of this table.
+   * Rows with a distance or magnitude not on the table axes are skipped if
+   * skipMissing is true, otherwise they are an error.
+   */
+  void load(Imt imt, Path csv, DoubleUnaryOperator transform, boolean skipMissing)
+      throws IOException {
+    int imtIndex = imtIndex(imt);
+    try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+      String line = reader.readLine(); // header
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) continue;
+        int c1 = line.indexOf(',');
+        int c2 = line.indexOf(',', c1 + 1);
+        int c3 = line.indexOf(',', c2 + 1);
+        double mVal = Double.parseDouble(line.substring(0, c1).trim());
+        double rVal = Double.parseDouble(line.substring(c1 + 1, c2).trim());
+        double value = Double.parseDouble(
+            line.substring(c2 + 1, (c3 < 0) ? line.length() : c3).trim());
+        int rIndex = Arrays.binarySearch(r, rVal);
+        int mIndex = Arrays.binarySearch(m, mVal);
+        if (rIndex < 0 || mIndex < 0) {
+          checkArgument(skipMissing, "Point [r=%s, m=%s] not in table: %s", rVal, mVal, csv);
+          continue;
+        }
+        int index = index(imtIndex, rIndex, mIndex);
+        double median = transform.applyAsDouble(value);
+        medians.put(index, median);
+        lnMedians[index] = toLn(median);
+      }
+    }
+  }
+
+  /*
+   * Text representation of the table with one block per Imt. Values are
+   * formatted using the supplied format, or at full precision if null.
+   */
+  List<String> toLines(String format) {
+    List<String> lines = new ArrayList<>();
+    List<Double> mList = Doubles.asList(m);
+    double[] row = new double[m.length];
+    for (int i = 0; i < imts.size(); i++) {
+      lines.add(imts.get(i).name());
+      lines.add("r\\m," + Parsing.join(mList, COMMA));
+      for (int j = 0; j < r.length; j++) {
+        for (int k = 0; k < m.length; k++) {
+          row[k] = get(i, j, k);
+        }
+        List<Double> values = Doubles.asList(row);
+        String line = r[j] + "," + ((format == null)
+            ? Parsing.join(values, COMMA)
+            : Parsing.toString(values, format, ",", false, true));
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  void writeText(Path out, String format) throws IOException {
+    Files.write(out, toLines(format), StandardCharsets.UTF_8);
+  }
+
+  void writeBinary(Path out) throws IOException {
+    try (DataOutputStream dos = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(out)))) {
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      dos.writeInt(units.ordinal());
+      dos.writeInt(imts.size());
+      dos.writeInt(r.length);
+      dos.writeInt(m.length);
+      for (Imt imt : imts) {
+        dos.writeUTF(imt.name());
+      }
+      for (double v : r) {
+        dos.writeDouble(v);
+      }
+      for (double v : m) {
+        dos.writeDouble(v);
+      }
+      for (int i = 0; i < medians.capacity(); i++) {
+        dos.writeDouble(medians.get(i));
+      }
+    }
+  }
+
+  /*
+   * Read a binary table. Median values are memory mapped, not copied; their
+   * natural logs are computed once here.
+   */
+  static GmmTable readBinary(Path in) throws IOException {
+    try (FileChannel channel = FileChannel.open(in, StandardOpenOption.READ)) {
+      ByteBuffer buf = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      checkState(buf.getInt() == MAGIC, "Not a GMM table: %s", in);
+      int version = buf.getInt();
+      checkState(version == VERSION, "Unsupported table version %s: %s", version, in);
+      int unitsOrdinal = buf.getInt();
+      checkState(unitsOrdinal >= 0 && unitsOrdinal < Units.values().length,
+          "Invalid table units %s: %s", unitsOrdinal, in);
+      Units units = Units.values()[unitsOrdinal];
+      int imtCount = buf.getInt();
+      int rCount = buf.getInt();
+      int mCount = buf.getInt();
+      checkState(rCount > 1 && mCount > 1, "Table axes must have at least 2 values: %s", in);
+      List<Imt> imts = new ArrayList<>(imtCount);
+      for (int i = 0; i < imtCount; i++) {
+        byte[] name = new byte[buf.getShort() & 0xffff];
+        buf.get(name);
+        imts.add(Imt.valueOf(new String(name, StandardCharsets.UTF_8)));
+      }
+      double[] r = new double[rCount];
+      buf.asDoubleBuffer().get(r);
+      buf.position(buf.position() + rCount * Double.BYTES);
+      double[] m = new double[mCount];
+      buf.asDoubleBuffer().get(m);
+      buf.position(buf.position() + mCount * Double.BYTES);
+      DoubleBuffer medians = buf.slice().asDoubleBuffer();
+      checkState(medians.capacity() == imtCount * rCount * mCount, "Truncated table: %s", in);
+      return new GmmTable(units, ImmutableList.copyOf(imts), r, m, medians);
+    }
+  }
+
+  /*
+   * Interpolate the median ground motion at a distance and magnitude for the
+   * Imt at the supplied index (see imtIndex()). Interpolation is bilinear in
+   * ln(median) with respect to ln(r) and m; a zero distance bin is
+   * interpolated linearly in r. Arguments outside the table axes are clamped.
+   * Linear medians must be positive.
+   */
+  double interpolate(int imtIndex, double rVal, double mVal) {
+    int i = lowerIndex(r, rVal);
+    int j = lowerIndex(m, mVal);
+    double r0 = r[i];
+    double r1 = r[i + 1];
+    double rc = Math.min(Math.max(rVal, r0), r1);
+    double rFrac = (r0 <= 0.0)
+        ? (rc - r0) / (r1 - r0)
+        : Math.log(rc / r0) / Math.log(r1 / r0);
+    double mc = Math.min(Math.max(mVal, m[j]), m[j + 1]);
+    double mFrac = (mc - m[j]) / (m[j + 1] - m[j]);
+
+    int k = index(imtIndex, i, j);
+    double y00 = lnMedians[k];
+    double y01 = lnMedians[k + 1];
+    double y10 = lnMedians[k + m.length];
+    double y11 = lnMedians[k + m.length + 1];
+    double y0 = y00 + mFrac * (y01 - y00);
+    double y1 = y10 + mFrac * (y11 - y10);
+    return Math.exp(y0 + rFrac * (y1 - y0));
+  }
+
+  private double toLn(double median) {
+    return (units == Units.LN) ? median : Math.log(median);
+  }
+
+  /* Index of the lower bound of the axis interval containing value. */
+  private static int lowerIndex(double[] axis, double value) {
+    int i = Arrays.binarySearch(axis, value);
+    if (i < 0) i = -i - 2;
+    return Math.max(0, Math.min(i, axis.length - 2));
+  }
+
+}
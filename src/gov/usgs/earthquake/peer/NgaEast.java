@@ -9,19 +9,14 @@ import static gov.usgs.earthquake.nshmp.gmm.Imt.SA0P75;
 import static gov.usgs.earthquake.nshmp.gmm.Imt.SA1P5;
 import static gov.usgs.earthquake.nshmp.gmm.Imt.SA3P0;
 import static gov.usgs.earthquake.nshmp.gmm.Imt.SA7P5;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.COMMA;
 
+import gov.usgs.earthquake.nshm.util.Utils;
 import gov.usgs.earthquake.nshmp.gmm.Imt;
-import gov.usgs.earthquake.nshmp.internal.Parsing;
 
-import com.google.common.collect.ArrayTable;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Table;
 import com.google.common.primitives.Doubles;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  * Combines individual *.csv tables for NGA-East models (1 file per model per
@@ -64,66 +60,47 @@ public class NgaEast {
       Doubles.asList(4.0, 4.5, 5.0, 5.5, 6.0, 6.5, 7.0, 7.5, 7.8, 8.0, 8.2);
 
   public static void main(String[] args) throws IOException {
+    List<Callable<Void>> tasks = new ArrayList<>();
     for (int i = 1; i <= 17; i++) {
-      combine(i);
+      final int model = i;
+      tasks.add(() -> {
+        combine(model);
+        return null;
+      });
     }
+    Utils.invokeAll(tasks);
   }
 
   static void combine(int model) throws IOException {
-    
-    Map<Imt, Table<Double, Double, Double>> μTables = Maps.newEnumMap(Imt.class);
 
-    DirectoryStream<Path> stream = Files.newDirectoryStream(
-        Paths.get(DIRBASE),
-        path -> Files.isDirectory(path) && !path.getFileName().toString().startsWith("csv"));
-
-    for (Path p : stream) {
-      String fName = p.getFileName().toString();
-//      System.out.println(fName);
-      Imt imt = toImt(fName);
-//      System.out.println(imt);
-      
-      Path modelPath = p.resolve(SRC_FILEBASE + model + ".csv");
-      Table<Double, Double, Double> μTable = loadFile(modelPath);
-      μTables.put(imt, μTable);
-    }
+    Map<Imt, Path> μPaths = Maps.newEnumMap(Imt.class);
 
-    writeTables(model, μTables);
-  }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+        Paths.get(DIRBASE),
+        path -> Files.isDirectory(path) && !path.getFileName().toString().startsWith("csv"))) {
 
-  static Table<Double, Double, Double> loadFile(Path csvFile) throws IOException {
-    List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
-    Table<Double, Double, Double> t = ArrayTable.create(R, M);
-    for (String line : Iterables.skip(lines, 1)) {
-      List<Double> v = Parsing.splitToDoubleList(line, COMMA);
-      t.put(v.get(1), v.get(0), Math.exp(v.get(2)));
+      for (Path p : stream) {
+        String fName = p.getFileName().toString();
+        Imt imt = toImt(fName);
+        μPaths.put(imt, p.resolve(SRC_FILEBASE + model + ".csv"));
+      }
     }
-    return t;
-  }
 
-  static void writeTables(int model, Map<Imt, Table<Double, Double, Double>> μTables)
-      throws IOException {
-
-    List<String> lines = new ArrayList<>();
-    for (Imt imt : μTables.keySet()) {
-      lines.addAll(toLines(imt, μTables.get(imt)));
+    GmmTable μTable = GmmTable.create(
+        GmmTable.Units.LINEAR,
+        new ArrayList<>(μPaths.keySet()),
+        R,
+        M);
+    for (Entry<Imt, Path> entry : μPaths.entrySet()) {
+      μTable.load(entry.getKey(), entry.getValue(), Math::exp, false);
     }
-    Files.createDirectories(OUT_DIR);
-    Path out = OUT_DIR.resolve(OUT_FILEBASE + model + ".dat");
-    Files.write(out, lines, StandardCharsets.UTF_8);
+    writeTables(model, μTable);
   }
 
-  static List<String> toLines(Imt imt, Table<Double, Double, Double> t) {
-    List<String> lines = new ArrayList<>();
-    lines.add(imt.name());
-    String header = "r\\m," + Parsing.join(t.columnKeySet(), COMMA);
-    lines.add(header);
-    for (Entry<Double, Map<Double, Double>> rEntry : t.rowMap().entrySet()) {
-      double r = rEntry.getKey();
-      String line = r + "," + Parsing.toString(rEntry.getValue().values(), "%.5g", ",", false, true);
-      lines.add(line);
-    }
-    return lines;
+  static void writeTables(int model, GmmTable μTable) throws IOException {
+    Files.createDirectories(OUT_DIR);
+    μTable.writeText(OUT_DIR.resolve(OUT_FILEBASE + model + ".dat"), "%.5g");
+    μTable.writeBinary(OUT_DIR.resolve(OUT_FILEBASE + model + ".bin"));
   }
 
   static Imt toImt(String fStr) {
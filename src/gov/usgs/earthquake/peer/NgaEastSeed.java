@@ -9,19 +9,14 @@ import static gov.usgs.earthquake.nshmp.gmm.Imt.SA0P75;
 import static gov.usgs.earthquake.nshmp.gmm.Imt.SA1P5;
 import static gov.usgs.earthquake.nshmp.gmm.Imt.SA3P0;
 import static gov.usgs.earthquake.nshmp.gmm.Imt.SA7P5;
-import static gov.usgs.earthquake.nshmp.internal.Parsing.Delimiter.COMMA;
 
+import gov.usgs.earthquake.nshm.util.Utils;
 import gov.usgs.earthquake.nshmp.gmm.Imt;
-import gov.usgs.earthquake.nshmp.internal.Parsing;
 
-import com.google.common.collect.ArrayTable;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Table;
 import com.google.common.primitives.Doubles;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  * Combines individual *.csv tables for NGA-East models (1 file per model per
@@ -57,72 +53,51 @@ public class NgaEastSeed {
       Doubles.asList(4.0, 4.5, 5.0, 5.5, 6.0, 6.5, 7.0, 7.5, 7.8, 8.0, 8.2);
 
   public static void main(String[] args) throws IOException {
+    List<Callable<Void>> tasks = new ArrayList<>();
     for (String filename : FILENAMES) {
-      combine(filename);
+      tasks.add(() -> {
+        combine(filename);
+        return null;
+      });
     }
+    Utils.invokeAll(tasks);
   }
 
   static void combine(String id) throws IOException {
 
-    Map<Imt, Table<Double, Double, Double>> μTables = Maps.newEnumMap(Imt.class);
+    Map<Imt, Path> μPaths = Maps.newEnumMap(Imt.class);
 
     String glob = id + (id.equals("ANC15") ? "_as_is_" : "_adjusted_") + "*.csv";
     System.out.println(glob);
-    DirectoryStream<Path> stream = Files.newDirectoryStream(SRC_DIR, glob);
-
-    for (Path p : stream) {
-      String fName = p.getFileName().toString();
-      String freqStr = fName.substring(fName.lastIndexOf('_') + 1, fName.lastIndexOf('.'));
-      Imt imt = toImt(freqStr);
-      Table<Double, Double, Double> μTable = loadFile(p);
-      μTables.put(imt, μTable);
-    }
-
-    writeTables(id, μTables);
-  }
-
-  static Table<Double, Double, Double> loadFile(Path csvFile) throws IOException {
-    List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
-    Table<Double, Double, Double> t = ArrayTable.create(R, M);
-    for (String line : Iterables.skip(lines, 1)) {
-      List<Double> v = Parsing.splitToDoubleList(line, COMMA);
-      /* 
-       * For whatever reason ANC15 has a greater discretization in both r and m;
-       * might be what the '_as_is_' refers to. If row or column is missing, skip
-       * populating table.
-       */
-      double r = v.get(1);
-      double m = v.get(0);
-      if (t.containsRow(r) && t.containsColumn(m)) {
-        t.put(r, m, v.get(2));
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(SRC_DIR, glob)) {
+      for (Path p : stream) {
+        String fName = p.getFileName().toString();
+        String freqStr = fName.substring(fName.lastIndexOf('_') + 1, fName.lastIndexOf('.'));
+        Imt imt = toImt(freqStr);
+        μPaths.put(imt, p);
       }
     }
-    return t;
-  }
 
-  static void writeTables(String model, Map<Imt, Table<Double, Double, Double>> μTables)
-      throws IOException {
-
-    List<String> lines = new ArrayList<>();
-    for (Imt imt : μTables.keySet()) {
-      lines.addAll(toLines(imt, μTables.get(imt)));
+    /*
+     * For whatever reason ANC15 has a greater discretization in both r and m;
+     * might be what the '_as_is_' refers to. If row or column is missing, skip
+     * populating table. Seed model medians are ln(gm) and are stored as is.
+     */
+    GmmTable μTable = GmmTable.create(
+        GmmTable.Units.LN,
+        new ArrayList<>(μPaths.keySet()),
+        R,
+        M);
+    for (Entry<Imt, Path> entry : μPaths.entrySet()) {
+      μTable.load(entry.getKey(), entry.getValue(), v -> v, true);
     }
-    Files.createDirectories(OUT_DIR);
-    Path out = OUT_DIR.resolve(OUT_FILEBASE + model + ".dat");
-    Files.write(out, lines, StandardCharsets.UTF_8);
+    writeTables(id, μTable);
   }
 
-  static List<String> toLines(Imt imt, Table<Double, Double, Double> t) {
-    List<String> lines = new ArrayList<>();
-    lines.add(imt.name());
-    String header = "r\\m," + Parsing.join(t.columnKeySet(), COMMA);
-    lines.add(header);
-    for (Entry<Double, Map<Double, Double>> rEntry : t.rowMap().entrySet()) {
-      double r = rEntry.getKey();
-      String line = r + "," + Parsing.join(rEntry.getValue().values(), COMMA);
-      lines.add(line);
-    }
-    return lines;
+  static void writeTables(String model, GmmTable μTable) throws IOException {
+    Files.createDirectories(OUT_DIR);
+    μTable.writeText(OUT_DIR.resolve(OUT_FILEBASE + model + ".dat"), null);
+    μTable.writeBinary(OUT_DIR.resolve(OUT_FILEBASE + model + ".bin"));
   }
 
   static Imt toImt(String fStr) {
@@ -92,15 +92,26 @@ import static gov.usgs.earthquake.nshmp.internal.SourceElement.TRACE;
 import static gov.usgs.earthquake.nshmp.mfd.MfdType.INCR;
 import static gov.usgs.earthquake.nshmp.mfd.MfdType.SINGLE;
 
+import gov.usgs.earthquake.nshmp.eq.model.SourceType;
+import gov.usgs.earthquake.nshmp.gmm.Gmm;
 import gov.usgs.earthquake.nshmp.internal.Parsing;
 
 import gov.usgs.earthquake.model.GmmCreator;
+import gov.usgs.earthquake.nshm.util.Utils;
 import gov.usgs.earthquake.peer.PeerTestData.Fault;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -124,11 +135,16 @@ public class PeerModelMaker {
   static final String SOURCE_FILE = "source.xml";
   static final String GMM_FILE = "gmm.xml";
 
-  private final DocumentBuilder docBuilder;
+  private static final ThreadLocal<DocumentBuilder> DOC_BUILDER =
+      ThreadLocal.withInitial(() -> {
+        try {
+          return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (ParserConfigurationException pce) {
+          throw new IllegalStateException(pce);
+        }
+      });
 
-  private PeerModelMaker() throws ParserConfigurationException {
-    docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-  }
+  private PeerModelMaker() {}
 
   public static void main(String[] args) throws Exception {
     PeerModelMaker pmm = new PeerModelMaker();
@@ -136,126 +152,159 @@ public class PeerModelMaker {
   }
 
   void writeModels() throws Exception {
-    Path path = null;
+    List<Case> cases = new ArrayList<>();
 
     // Set 1
 
-    path = Paths.get(MODEL_DIR, S1_C1, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C1, F1, F1_SINGLE_6P5_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C1, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C1, F1, F1_SINGLE_6P5_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C2, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C2, F1, F1_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C2, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C2, F1, F1_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C3, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C3, F1, F1_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C3, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C3, F1, F1_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C4, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C4, F2, F2_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C4, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C4, F2, F2_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C5, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C5, F1, F1_GR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C5, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C5, F1, F1_GR_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C6, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C6, F1, F1_GAUSS_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C6, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C6, F1, F1_GAUSS_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C7, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C7, F1, F1_YC_CHAR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C7, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C7, F1, F1_YC_CHAR_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C8A, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C8A, F1, F1_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C8A, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C8A, F1, F1_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C8B, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C8B, F1, F1_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C8B, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C8B, F1, F1_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C8C, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S1_C8C, F1, F1_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C8C, FAULT, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createFault(S1_C8C, F1, F1_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S1_C10, AREA.toString());
-    write(path.resolve(SOURCE_FILE), createArea(S1_C10, AREA_GR_MFD, AREA_DEPTH_STR, 1));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C10, AREA, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createArea(S1_C10, AREA_GR_MFD, AREA_DEPTH_STR, 1)));
 
-    path = Paths.get(MODEL_DIR, S1_C11, AREA.toString());
-    write(path.resolve(SOURCE_FILE), createArea(S1_C11, AREA_GR_MFD, AREA_DEPTH_VAR_STR, 1));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S1_C11, AREA, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createArea(S1_C11, AREA_GR_MFD, AREA_DEPTH_VAR_STR, 1)));
 
     // Set 2
 
     // deagg
-    path = Paths.get(MODEL_DIR, S2_C1, AREA.toString());
-    write(path.resolve(SOURCE_FILE), createArea(S2_C1, AREA_GR_MFD, AREA_DEPTH_VAR_STR, 2));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
-    path = Paths.get(MODEL_DIR, S2_C1, FAULT.toString());
-    write(path.resolve("source1.xml"), createFault(S2_C1, FB, FB_YC_CHAR_FLOAT_MFD));
-    write(path.resolve("source2.xml"), createFault(S2_C1, FC, FC_YC_CHAR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), SADIGH_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C1, AREA, SADIGH_GMM)
+        .source(SOURCE_FILE, () -> createArea(S2_C1, AREA_GR_MFD, AREA_DEPTH_VAR_STR, 2)));
+    cases.add(new Case(S2_C1, FAULT, SADIGH_GMM)
+        .source("source1.xml", () -> createFault(S2_C1, FB, FB_YC_CHAR_FLOAT_MFD))
+        .source("source2.xml", () -> createFault(S2_C1, FC, FC_YC_CHAR_FLOAT_MFD)));
 
     // NGAW2
-    path = Paths.get(MODEL_DIR, S2_C2A, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C2A, F3, F3_GR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), ASK14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C2A, FAULT, ASK14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C2A, F3, F3_GR_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C2B, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C2B, F3, F3_GR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), BSSA14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C2B, FAULT, BSSA14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C2B, F3, F3_GR_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C2C, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C2C, F3, F3_GR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CB14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C2C, FAULT, CB14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C2C, F3, F3_GR_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C2D, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C2D, F3, F3_GR_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CY14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C2D, FAULT, CY14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C2D, F3, F3_GR_FLOAT_MFD)));
 
     // hanging wall
-    path = Paths.get(MODEL_DIR, S2_C3A, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C3A, F4, F4_SINGLE_7P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), ASK14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C3A, FAULT, ASK14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C3A, F4, F4_SINGLE_7P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C3B, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C3B, F4, F4_SINGLE_7P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), BSSA14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C3B, FAULT, BSSA14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C3B, F4, F4_SINGLE_7P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C3C, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C3C, F4, F4_SINGLE_7P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CB14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C3C, FAULT, CB14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C3C, F4, F4_SINGLE_7P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C3D, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C3D, F4, F4_SINGLE_7P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CY14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C3D, FAULT, CY14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C3D, F4, F4_SINGLE_7P0_FLOAT_MFD)));
 
     // uniform vs triangular distribution
-    path = Paths.get(MODEL_DIR, S2_C4A, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C4A, F5, F5_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CY14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C4A, FAULT, CY14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C4A, F5, F5_SINGLE_6P0_FLOAT_MFD)));
 
-    path = Paths.get(MODEL_DIR, S2_C4B, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C4B, F5, F5_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CY14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C4B, FAULT, CY14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C4B, F5, F5_SINGLE_6P0_FLOAT_MFD)));
 
     // mixture model
-    path = Paths.get(MODEL_DIR, S2_C5A, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C5A, F6, F6_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CY14_GMM, GMM_CUTOFFS, null, null);
+    cases.add(new Case(S2_C5A, FAULT, CY14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C5A, F6, F6_SINGLE_6P0_FLOAT_MFD)));
+
+    cases.add(new Case(S2_C5B, FAULT, CY14_GMM)
+        .source(SOURCE_FILE, () -> createFault(S2_C5B, F6, F6_SINGLE_6P0_FLOAT_MFD)));
+
+    writeCases(cases);
+  }
+
+  /* A single test case model directory. */
+  private static final class Case {
+
+    final Path dir;
+    final List<Map<Gmm, Double>> gmms;
+    final Map<String, Callable<Document>> sources = new LinkedHashMap<>();
+
+    Case(String testName, SourceType type, List<Map<Gmm, Double>> gmms) {
+      this.dir = Paths.get(MODEL_DIR, testName, type.toString());
+      this.gmms = gmms;
+    }
 
-    path = Paths.get(MODEL_DIR, S2_C5B, FAULT.toString());
-    write(path.resolve(SOURCE_FILE), createFault(S2_C5B, F6, F6_SINGLE_6P0_FLOAT_MFD));
-    GmmCreator.write(path.resolve(GMM_FILE), CY14_GMM, GMM_CUTOFFS, null, null);
+    Case source(String filename, Callable<Document> doc) {
+      sources.put(filename, doc);
+      return this;
+    }
+  }
+
+  /*
+   * Each distinct gmm configuration is serialized once, to the first case
+   * that uses it, and copied to all other cases. Source files are built and
+   * written concurrently.
+   */
+  private static void writeCases(List<Case> cases) throws IOException {
+    Map<List<Map<Gmm, Double>>, Path> gmmFiles = new LinkedHashMap<>();
+    for (Case c : cases) {
+      if (!gmmFiles.containsKey(c.gmms)) {
+        gmmFiles.put(c.gmms, c.dir.resolve(GMM_FILE));
+      }
+    }
 
+    List<Callable<Void>> gmmJobs = new ArrayList<>();
+    for (Entry<List<Map<Gmm, Double>>, Path> entry : gmmFiles.entrySet()) {
+      gmmJobs.add(() -> {
+        GmmCreator.write(entry.getValue(), entry.getKey(), GMM_CUTOFFS, null, null);
+        return null;
+      });
+    }
+    Utils.invokeAll(gmmJobs);
+
+    List<Callable<Void>> caseJobs = new ArrayList<>();
+    for (Case c : cases) {
+      caseJobs.add(() -> {
+        for (Entry<String, Callable<Document>> source : c.sources.entrySet()) {
+          write(c.dir.resolve(source.getKey()), source.getValue().call());
+        }
+        Path gmmFile = c.dir.resolve(GMM_FILE);
+        Path gmmSrc = gmmFiles.get(c.gmms);
+        if (!gmmSrc.equals(gmmFile)) {
+          Files.createDirectories(c.dir);
+          Files.copy(gmmSrc, gmmFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return null;
+      });
+    }
+    Utils.invokeAll(caseJobs);
   }
 
   private Document createFault(String testName, Fault fault, IncrementalMfd mfd) {
 
-    Document doc = docBuilder.newDocument();
+    Document doc = DOC_BUILDER.get().newDocument();
     doc.setXmlStandalone(true);
     Element root = doc.createElement(FAULT_SOURCE_SET.toString());
     addAttribute(NAME, testName, root);
@@ -288,7 +337,7 @@ public class PeerModelMaker {
   }
 
   private Document createArea(String testName, IncrementalMfd mfd, String magDepthMap, int id) {
-    Document doc = docBuilder.newDocument();
+    Document doc = DOC_BUILDER.get().newDocument();
     doc.setXmlStandalone(true);
     Element root = doc.createElement(AREA_SOURCE_SET.toString());
     addAttribute(NAME, testName, root);
@@ -323,9 +372,9 @@ public class PeerModelMaker {
 
     DOMSource source = new DOMSource(doc);
     Files.createDirectories(dest.getParent());
-    StreamResult result = new StreamResult(Files.newOutputStream(dest));
-
-    trans.transform(source, result);
+    try (OutputStream out = Files.newOutputStream(dest)) {
+      trans.transform(source, new StreamResult(out));
+    }
   }
 
   private static void addMfd(IncrementalMfd mfd, Element e) {